@@ -1038,7 +1038,7 @@ const getClassInfosRequest = new RequestType<PackageInfoParams, JavaClass[], nul
 /**
  * Request type for retrieving all top-level packages available in the classpath.
  */
-const getTopLevelPackages = new RequestType<null, PackageInfoParams[], null>('getTopLevelPackages');
+const getTopLevelPackages = new RequestType<null, PackageSummary[], null>('getTopLevelPackages');
 
 /**
  * Request type for retrieving every fully-qualified class name known to the interop service
@@ -1064,6 +1064,14 @@ interface PackageInfoParams {
     packageName: string
 }
 
+/**
+ * A package returned by getTopLevelPackages.
+ */
+interface PackageSummary {
+    packageName: string
+    hasSubpackages: boolean
+}
+
 /**
  * Parameters for classpath loading requests.
  */
@@ -11,8 +11,8 @@ import { initializeWorkspace, shouldRunBBjTests } from '../test-helper.js';
 /**
  * End-to-end verification for issue #447 against the LIVE java-interop service on :5008.
  * `java.util.HashMap` is not an implicit import, so the missing-`use` quick-fix depends on
- * the targeted candidate probe (resolveClassCandidatesBySimpleName) actually resolving
- * `java.util.HashMap` from the real classpath. Skipped unless interop is reachable.
+ * resolveClassCandidatesBySimpleName actually resolving `java.util.HashMap` from the complete
+ * class index the server provides via getAllClassNames. Skipped unless interop is reachable.
  */
 describe('Issue #447 - suggest missing use statements (real interop)', async () => {
     const run = await shouldRunBBjTests();
@@ -33,14 +33,17 @@ describe('Issue #447 - suggest missing use statements (real interop)', async ()
         return document.diagnostics?.filter(err => err.data?.code === DocumentValidator.LinkingError) ?? [];
     }
 
-    test.runIf(run)('capability detection: current server lacks getAllClassNames and degrades gracefully', async () => {
+    test.runIf(run)('capability detection: server provides getAllClassNames and a complete class index', async () => {
         const interop = services.BBj.java.JavaInteropService;
-        // The deployed server predates the augmented endpoint, so no complete index is built...
-        expect(await interop.ensureCompleteClassIndex()).toBe(false);
-        expect(interop.hasCompleteClassIndex()).toBe(false);
-        // ...yet suggestions still work via the fallback probe.
+        // The server answers getAllClassNames, so the complete index is built...
+        expect(await interop.ensureCompleteClassIndex()).toBe(true);
+        expect(interop.hasCompleteClassIndex()).toBe(true);
+        // ...and candidates come from it, including classes outside the probed packages.
         const candidates = await interop.resolveClassCandidatesBySimpleName('HashMap');
         expect(candidates).toContain('java.util.HashMap');
+        expect(await interop.resolveClassCandidatesBySimpleName('XMLGregorianCalendar'))
+            .toContain('javax.xml.datatype.XMLGregorianCalendar');
+        expect(await interop.findClassCandidatesByPrefix('ArrayLis')).toContain('java.util.ArrayList');
     }, 60000);
 
     test.runIf(run)("offers 'use java.util.HashMap' for an unresolved HashMap reference", async () => {
@@ -49,11 +49,12 @@ const OUTPUT_PATH = args.output
 interface ClassPathInfoParams { classPathEntries: string[] }
 interface ClassInfoParams { className: string }
 interface PackageInfoParams { packageName: string }
+interface PackageSummary { packageName: string; hasSubpackages: boolean }
 
 const loadClasspathRequest = new RequestType<ClassPathInfoParams, boolean, null>('loadClasspath');
 const getClassInfoRequest = new RequestType<ClassInfoParams, any, null>('getClassInfo');
 const getClassInfosRequest = new RequestType<PackageInfoParams, any[], null>('getClassInfos');
-const getTopLevelPackagesRequest = new RequestType<null, PackageInfoParams[], null>('getTopLevelPackages');
+const getTopLevelPackagesRequest = new RequestType<null, PackageSummary[], null>('getTopLevelPackages');
 
 // ─── Test result types ──────────────────────────────────────────────────────
 
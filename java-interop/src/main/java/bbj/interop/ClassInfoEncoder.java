@@ -0,0 +1,89 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import bbj.interop.data.ClassInfo;
+import bbj.interop.data.EncodedClassInfo;
+import bbj.interop.data.EncodedClassInfos;
+import bbj.interop.data.EncodedFieldInfo;
+import bbj.interop.data.EncodedMethodInfo;
+import bbj.interop.data.FieldInfo;
+import bbj.interop.data.MethodInfo;
+
+/**
+ * Converts {@link ClassInfo}s to the dictionary encoded response format.
+ * Each encoder builds one string table, so use a new encoder per response.
+ */
+class ClassInfoEncoder {
+
+	private final Map<String, Integer> indices = new HashMap<>();
+	private final List<String> strings = new ArrayList<>();
+
+	static EncodedClassInfos encode(List<ClassInfo> classInfos) {
+		var encoder = new ClassInfoEncoder();
+		var result = new EncodedClassInfos();
+		result.classes = classInfos.stream().map(encoder::encode).collect(Collectors.toList());
+		result.strings = encoder.strings;
+		return result;
+	}
+
+	private EncodedClassInfo encode(ClassInfo classInfo) {
+		var encoded = new EncodedClassInfo();
+		encoded.name = index(classInfo.name);
+		encoded.packageName = index(classInfo.packageName);
+		encoded.simpleName = index(classInfo.simpleName);
+		encoded.isDeprecated = classInfo.isDeprecated;
+		encoded.isInterface = classInfo.isInterface;
+		encoded.superClass = index(classInfo.superClass);
+		encoded.interfaces = classInfo.interfaces != null
+				? classInfo.interfaces.stream().mapToInt(this::index).toArray()
+				: new int[0];
+		encoded.error = classInfo.error;
+		encoded.fields = classInfo.fields.stream().map(this::encode).collect(Collectors.toList());
+		encoded.methods = classInfo.methods.stream().map(this::encode).collect(Collectors.toList());
+		encoded.constructors = classInfo.constructors.stream().map(this::encode).collect(Collectors.toList());
+		return encoded;
+	}
+
+	private EncodedFieldInfo encode(FieldInfo field) {
+		var encoded = new EncodedFieldInfo();
+		encoded.name = index(field.name);
+		encoded.type = index(field.type);
+		encoded.declaringClass = index(field.declaringClass);
+		encoded.isStatic = field.isStatic;
+		encoded.isDeprecated = field.isDeprecated;
+		return encoded;
+	}
+
+	private EncodedMethodInfo encode(MethodInfo method) {
+		var encoded = new EncodedMethodInfo();
+		encoded.name = index(method.name);
+		encoded.returnType = index(method.returnType);
+		encoded.declaringClass = index(method.declaringClass);
+		encoded.parameterNames = method.parameters.stream().mapToInt(p -> index(p.name)).toArray();
+		encoded.parameterTypes = method.parameters.stream().mapToInt(p -> index(p.type)).toArray();
+		encoded.isStatic = method.isStatic;
+		encoded.isDeprecated = method.isDeprecated;
+		return encoded;
+	}
+
+	private int index(String value) {
+		if (value == null) {
+			return -1;
+		}
+		return indices.computeIfAbsent(value, key -> {
+			strings.add(key);
+			return strings.size() - 1;
+		});
+	}
+
+}
@@ -0,0 +1,88 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import com.google.common.base.Stopwatch;
+
+import bbj.interop.data.ClassInfo;
+import bbj.interop.data.ClassPathInfoParams;
+import bbj.interop.data.PackageInfoParams;
+import bbj.interop.index.ClassMetadataIndex;
+import bbj.interop.trace.Trace;
+
+/**
+ * Loads the class infos of the packages every language server asks for first
+ * (see {@link InteropSettings#WARMUP_PACKAGES}) on low priority background
+ * threads when the service starts. The results end up in the shared metadata
+ * index and the warmed classpath context stays cached for
+ * {@link InteropSettings#CONTEXT_IDLE_SECONDS}, so the first real requests
+ * are cache hits. A class index snapshot, see
+ * {@link InteropSettings#SNAPSHOT}, is imported first.
+ */
+final class ClassInfoWarmup {
+
+	private ClassInfoWarmup() {
+	}
+
+	static void start(ClassMetadataIndex metadataIndex, ClassPathContexts contexts, InteropMetrics metrics) {
+		var packages = InteropSettings.getWarmupPackages();
+		var snapshot = InteropSettings.getSnapshotFile();
+		var hasSnapshot = snapshot != null && Files.isRegularFile(snapshot);
+		if (packages.isEmpty() && !hasSnapshot) {
+			return;
+		}
+		var thread = new Thread(() -> {
+			if (hasSnapshot) {
+				metadataIndex.importSnapshot(snapshot);
+			}
+			if (!packages.isEmpty()) {
+				run(metadataIndex, contexts, metrics, packages);
+			}
+		}, "bbj-interop-warmup");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		thread.start();
+	}
+
+	private static void run(ClassMetadataIndex metadataIndex, ClassPathContexts contexts, InteropMetrics metrics,
+			List<String> packages) {
+		var sw = Stopwatch.createStarted();
+		var executor = RequestExecutors.newBackgroundExecutor(Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+		var service = new InteropService(metadataIndex, contexts, metrics, executor);
+		try {
+			var classPath = InteropSettings.getWarmupClassPath();
+			if (!classPath.isEmpty()) {
+				var params = new ClassPathInfoParams();
+				params.classPathEntries = new ArrayList<>(classPath);
+				service.loadClasspath(params).join();
+			}
+			List<CompletableFuture<List<ClassInfo>>> requests = packages.stream().map(packageName -> {
+				var params = new PackageInfoParams();
+				params.packageName = packageName;
+				return service.getClassInfos(params);
+			}).collect(Collectors.toList());
+			int classes = requests.stream().mapToInt(request -> request.join().size()).sum();
+			Trace.info("Warmed up %d classes of %d packages in %dms", classes, packages.size(),
+					sw.elapsed(TimeUnit.MILLISECONDS));
+		} catch (CompletionException | CancellationException e) {
+			var cause = e.getCause() != null ? e.getCause() : e;
+			Trace.warn("Warm-up failed: %s", cause);
+		} finally {
+			service.dispose();
+			executor.shutdown();
+		}
+	}
+
+}
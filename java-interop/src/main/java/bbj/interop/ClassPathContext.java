@@ -0,0 +1,282 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ScheduledFuture;
+
+import org.eclipse.lsp4j.jsonrpc.CancelChecker;
+
+import com.google.common.hash.Hashing;
+
+import bbj.interop.index.ClassFileMetadataLoader;
+import bbj.interop.index.ClassNameTable;
+import bbj.interop.index.ClassPathIndex;
+import bbj.interop.index.JarIndexCache;
+import bbj.interop.index.JdkIndex;
+import bbj.interop.index.MemberNameIndex;
+import bbj.interop.index.PackageTree;
+import bbj.interop.trace.Trace;
+
+/**
+ * Class loader and class index for one classpath. Contexts are shared by all
+ * connections that load the same classpath, see {@link ClassPathContexts}.
+ * The classes of the JDK, see {@link JdkIndex}, are part of every context.
+ */
+public class ClassPathContext {
+
+	private final String key;
+	private final int generation;
+	private final List<URL> urls;
+	private final BbjClassLoader classLoader;
+	private final ClassPathIndex classPathIndex;
+	private final ClassFileMetadataLoader classFileLoader;
+	private volatile PackageTree packageTree;
+	private volatile Generation<ClassNameTable> classNames;
+	private volatile Generation<MemberNameIndex> memberNames;
+
+	// guarded by ClassPathContexts
+	int references;
+	ScheduledFuture<?> pendingClose;
+	List<Path> watchedEntries;
+	boolean discarded;
+
+	/**
+	 * @param generation unique number of the context, increasing with every
+	 *                   new class loader
+	 */
+	ClassPathContext(String key, int generation, List<URL> urls, JarIndexCache jarIndexCache) {
+		this.key = key;
+		this.generation = generation;
+		this.urls = List.copyOf(urls);
+		this.classLoader = new BbjClassLoader(urls.toArray(URL[]::new), ClassLoader.getPlatformClassLoader());
+		this.classPathIndex = new ClassPathIndex(InteropSettings.getScanParallelism(), jarIndexCache);
+		this.classFileLoader = new ClassFileMetadataLoader(classLoader);
+	}
+
+	/**
+	 * Computes the key of a classpath from the entries and, for local files,
+	 * their size and modification time, so a rebuilt jar yields a new context.
+	 */
+	static String keyOf(List<URL> urls) {
+		var hasher = Hashing.murmur3_128().newHasher();
+		for (var url : urls) {
+			hasher.putUnencodedChars(url.toString());
+			var path = toPath(url);
+			if (path != null && Files.isRegularFile(path)) {
+				try {
+					hasher.putLong(Files.size(path));
+					hasher.putLong(Files.getLastModifiedTime(path).toMillis());
+				} catch (IOException e) {
+					// file vanished, the entry name alone identifies it
+				}
+			}
+		}
+		return hasher.hash().toString();
+	}
+
+	/**
+	 * Indexes the jars and class directories of this classpath. Called by
+	 * every connection that acquires the context; entries are only scanned
+	 * by the first one. A canceled call publishes nothing, the next caller
+	 * scans the remaining entries.
+	 */
+	void index(CancelChecker cancelChecker) {
+		var entries = new ArrayList<Path>();
+		urls.forEach(url -> {
+			var path = toPath(url);
+			if (path != null) {
+				entries.add(path);
+			}
+		});
+		classPathIndex.addAll(entries, cancelChecker);
+	}
+
+	private static Path toPath(URL url) {
+		if (!"file".equals(url.getProtocol())) {
+			return null;
+		}
+		try {
+			return Path.of(url.toURI());
+		} catch (URISyntaxException | IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	public int getGeneration() {
+		return generation;
+	}
+
+	public List<URL> getUrls() {
+		return urls;
+	}
+
+	public ClassLoader getClassLoader() {
+		return classLoader;
+	}
+
+	public ClassPathIndex getClassPathIndex() {
+		return classPathIndex;
+	}
+
+	/**
+	 * Fully qualified names of the top-level classes of a package of this
+	 * classpath or the JDK, sorted.
+	 */
+	public List<String> getTopLevelClasses(String packageName) {
+		var jdkClasses = JdkIndex.get().getTopLevelClasses(packageName);
+		var classes = classPathIndex.getTopLevelClasses(packageName);
+		if (jdkClasses.isEmpty()) {
+			return classes;
+		}
+		if (classes.isEmpty()) {
+			return jdkClasses;
+		}
+		var merged = new TreeSet<>(jdkClasses);
+		merged.addAll(classes);
+		return List.copyOf(merged);
+	}
+
+	/**
+	 * Fully qualified names of all top-level classes of this classpath and
+	 * the JDK. The table is built on first use and rebuilt once entries have
+	 * been added to the index.
+	 */
+	public ClassNameTable getClassNames() {
+		var current = classNames;
+		int generation = classPathIndex.getGeneration();
+		if (current == null || current.generation != generation) {
+			var packages = new ArrayList<List<String>>(JdkIndex.get().getPackages().values());
+			packages.addAll(classPathIndex.getPackages().values());
+			classNames = current = new Generation<>(generation, ClassNameTable.of(packages));
+		}
+		return current.value;
+	}
+
+	/**
+	 * Public method and field names of this classpath and the JDK, with the
+	 * classes declaring them. Built on first use and rebuilt once entries
+	 * have been added to the index.
+	 */
+	public MemberNameIndex getMemberNames() {
+		var current = memberNames;
+		int generation = classPathIndex.getGeneration();
+		if (current == null || current.generation != generation) {
+			var jdkIndex = JdkIndex.get();
+			var methods = new ArrayList<Map<String, List<String>>>(List.of(jdkIndex.getMethods()));
+			var fields = new ArrayList<Map<String, List<String>>>(List.of(jdkIndex.getFields()));
+			for (var jarIndex : classPathIndex.getJarIndexes()) {
+				methods.add(jarIndex.getMethods());
+				fields.add(jarIndex.getFields());
+			}
+			memberNames = current = new Generation<>(generation, MemberNameIndex.of(methods, fields));
+		}
+		return current.value;
+	}
+
+	/**
+	 * Binary names of the public classes of this classpath and the JDK that
+	 * extend or implement the given type, read from the class file headers
+	 * when the entries were indexed. Transitive subtypes are listed breadth
+	 * first, each level sorted. Classes that are not public are not listed but
+	 * looked through, so a public class that extends the type via a
+	 * package-private one counts as a direct subtype.
+	 */
+	public List<String> getSubtypes(String typeName, boolean transitive, int limit) {
+		var jdkIndex = JdkIndex.get();
+		var subtypes = new LinkedHashSet<String>();
+		var visited = new HashSet<String>();
+		var pending = new ArrayDeque<String>();
+		pending.add(typeName);
+		while (!pending.isEmpty() && subtypes.size() < limit) {
+			var type = pending.poll();
+			var direct = new TreeSet<>(jdkIndex.getDirectSubtypes(type));
+			direct.addAll(classPathIndex.getDirectSubtypes(type));
+			for (var subtype : direct) {
+				if (subtypes.size() >= limit) {
+					break;
+				}
+				if (!visited.add(subtype)) {
+					continue;
+				}
+				if (jdkIndex.isNonPublic(subtype) || classPathIndex.isNonPublic(subtype)) {
+					pending.add(subtype);
+				} else if (subtypes.add(subtype) && transitive) {
+					pending.add(subtype);
+				}
+			}
+		}
+		return List.copyOf(subtypes);
+	}
+
+	/**
+	 * The packages of this classpath and the JDK. The tree is built on first
+	 * use and rebuilt once entries have been added to the index.
+	 */
+	public PackageTree getPackageTree() {
+		var tree = packageTree;
+		int generation = classPathIndex.getGeneration();
+		if (tree == null || tree.getGeneration() != generation) {
+			packageTree = tree = PackageTree.build(generation,
+					List.of(JdkIndex.get().getPackages(), classPathIndex.getPackages()));
+		}
+		return tree;
+	}
+
+	public ClassFileMetadataLoader getClassFileLoader() {
+		return classFileLoader;
+	}
+
+	void close() {
+		try {
+			classLoader.close();
+		} catch (IOException e) {
+			Trace.error(e, "Failed to close class loader of context %s", key);
+		}
+	}
+
+	/**
+	 * A value derived from the index, tagged with the index generation it
+	 * was built from.
+	 */
+	private static class Generation<T> {
+		final int generation;
+		final T value;
+
+		Generation(int generation, T value) {
+			this.generation = generation;
+			this.value = value;
+		}
+	}
+
+	static class BbjClassLoader extends URLClassLoader {
+
+		static {
+			ClassLoader.registerAsParallelCapable();
+		}
+
+		public BbjClassLoader(URL[] urls, ClassLoader parent) {
+			super(urls, parent);
+		}
+	}
+
+}
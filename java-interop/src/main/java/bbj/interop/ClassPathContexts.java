@@ -0,0 +1,272 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.lsp4j.jsonrpc.CancelChecker;
+
+import bbj.interop.index.ClassMetadataIndex;
+import bbj.interop.index.JarIndex;
+import bbj.interop.index.JarIndexCache;
+import bbj.interop.trace.Trace;
+
+/**
+ * Reference counted registry of {@link ClassPathContext}s, keyed by classpath
+ * fingerprint. Connections that load the same classpath share one class
+ * loader and index, and every request holds a reference while it runs. A
+ * class loader is only closed once nothing references its context anymore;
+ * an unreferenced context is kept warm for a while, so a restarted language
+ * server finds it again.
+ * <p>
+ * When watching is enabled, a context whose jars or class directories change
+ * on disk is replaced by a new generation with a fresh class loader. Only the
+ * changed entries are scanned again, and the {@link Listener}s move their
+ * connections over to the new generation.
+ */
+public class ClassPathContexts {
+
+	/**
+	 * Notified after a context has been replaced by a new generation.
+	 */
+	public interface Listener {
+		/**
+		 * @param classNames the top-level classes of the changed entries,
+		 *                   before and after the change
+		 */
+		void contextReplaced(ClassPathContext previous, ClassPathContext next, List<Path> changedEntries,
+				List<String> classNames);
+	}
+
+	private static final CancelChecker NOT_CANCELABLE = () -> {
+	};
+
+	private final Map<String, ClassPathContext> contexts = new HashMap<>();
+	private final AtomicInteger generations = new AtomicInteger();
+	private final long idleSeconds;
+	private final ClassMetadataIndex metadataIndex;
+	private final JarIndexCache jarIndexCache;
+	private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+	private final ClassPathWatcher watcher;
+	private final ScheduledExecutorService closer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		var thread = new Thread(runnable, "bbj-interop-context-close");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * @param metadataIndex its entries of changed jars are dropped, scans of
+	 *                      the jars are stored in its index directory
+	 * @param watch         whether to watch the classpath entries for changes
+	 */
+	public ClassPathContexts(long idleSeconds, ClassMetadataIndex metadataIndex, boolean watch) {
+		this.idleSeconds = idleSeconds;
+		this.metadataIndex = metadataIndex;
+		this.jarIndexCache = new JarIndexCache(metadataIndex.getIndexDir());
+		this.watcher = watch ? createWatcher() : null;
+	}
+
+	private ClassPathWatcher createWatcher() {
+		try {
+			return new ClassPathWatcher(this::entriesChanged);
+		} catch (IOException | UnsupportedOperationException e) {
+			Trace.warn("Classpath watching is not available: %s", e.getMessage());
+			return null;
+		}
+	}
+
+	public void addListener(Listener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Returns the context for the given classpath, creating and indexing it
+	 * if necessary. Every call must be paired with {@link #release}, unless
+	 * it is canceled while indexing.
+	 */
+	public ClassPathContext acquire(List<URL> urls, CancelChecker cancelChecker) {
+		var key = ClassPathContext.keyOf(urls);
+		ClassPathContext context;
+		synchronized (this) {
+			context = contexts.get(key);
+			if (context == null) {
+				context = new ClassPathContext(key, generations.incrementAndGet(), urls, jarIndexCache);
+				contexts.put(key, context);
+			}
+			context.discarded = false;
+			retain(context);
+		}
+		// outside the lock, so other classpaths can be acquired meanwhile
+		try {
+			context.index(cancelChecker);
+		} catch (CancellationException e) {
+			release(context);
+			throw e;
+		}
+		watch(context);
+		return context;
+	}
+
+	/**
+	 * Adds a reference to a context that is already indexed, e.g. the next
+	 * generation of a replaced one or the context a request runs on.
+	 */
+	public synchronized void retain(ClassPathContext context) {
+		context.references++;
+		if (context.pendingClose != null) {
+			context.pendingClose.cancel(false);
+			context.pendingClose = null;
+		}
+	}
+
+	/**
+	 * The open contexts, including unreferenced ones that are about to be
+	 * closed.
+	 */
+	public synchronized List<ClassPathContext> getContexts() {
+		return List.copyOf(contexts.values());
+	}
+
+	public synchronized void release(ClassPathContext context) {
+		if (context == null || --context.references > 0) {
+			return;
+		}
+		if (context.discarded || contexts.get(context.getKey()) != context) {
+			// replaced on purpose or by a newer generation
+			close(context);
+			return;
+		}
+		context.pendingClose = closer.schedule(() -> close(context), idleSeconds, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Releases a context that was replaced on purpose. Its class loader is
+	 * closed as soon as it is no longer referenced, instead of being kept
+	 * warm; requests still running on it keep it open until they complete.
+	 */
+	public synchronized void discard(ClassPathContext context) {
+		if (context != null) {
+			context.discarded = true;
+		}
+		release(context);
+	}
+
+	private synchronized void close(ClassPathContext context) {
+		if (context.references > 0) {
+			return;
+		}
+		if (contexts.get(context.getKey()) == context) {
+			contexts.remove(context.getKey());
+		}
+		if (watcher != null && context.watchedEntries != null) {
+			watcher.unwatch(context.watchedEntries);
+			context.watchedEntries = null;
+		}
+		context.close();
+		Trace.info("Closed unused classpath context %s", context.getKey());
+	}
+
+	private void watch(ClassPathContext context) {
+		if (watcher == null) {
+			return;
+		}
+		var entries = context.getClassPathIndex().getEntries();
+		synchronized (this) {
+			if (context.watchedEntries != null || !contexts.containsValue(context)) {
+				return;
+			}
+			context.watchedEntries = entries;
+		}
+		watcher.watch(entries);
+	}
+
+	/**
+	 * Replaces every context that contains one of the changed entries by a
+	 * new generation. Contexts without references are simply dropped.
+	 */
+	private void entriesChanged(Set<Path> changed) {
+		changed.forEach(metadataIndex::invalidate);
+		List<ClassPathContext> affected;
+		synchronized (this) {
+			affected = new ArrayList<>();
+			for (var context : contexts.values()) {
+				if (context.watchedEntries != null && context.watchedEntries.stream().anyMatch(changed::contains)) {
+					affected.add(context);
+				}
+			}
+		}
+		for (var previous : affected) {
+			replace(previous, changed);
+		}
+	}
+
+	private void replace(ClassPathContext previous, Set<Path> changed) {
+		ClassPathContext next;
+		synchronized (this) {
+			if (contexts.get(previous.getKey()) != previous) {
+				return;
+			}
+			contexts.remove(previous.getKey());
+			if (previous.references == 0) {
+				close(previous);
+				return;
+			}
+			var key = ClassPathContext.keyOf(previous.getUrls());
+			next = contexts.get(key);
+			if (next == null) {
+				next = new ClassPathContext(key, generations.incrementAndGet(), previous.getUrls(), jarIndexCache);
+				contexts.put(key, next);
+			}
+			retain(next);
+		}
+		try {
+			next.index(NOT_CANCELABLE);
+			watch(next);
+			var changedEntries = new ArrayList<Path>();
+			var classNames = new TreeSet<String>();
+			for (var entry : previous.watchedEntries != null ? previous.watchedEntries : List.<Path>of()) {
+				if (changed.contains(entry)) {
+					changedEntries.add(entry);
+					addTopLevelClassNames(classNames, previous.getClassPathIndex().getEntry(entry));
+					addTopLevelClassNames(classNames, next.getClassPathIndex().getEntry(entry));
+				}
+			}
+			Trace.info("Classpath changed: %s, %d classes affected, now generation %d", changedEntries,
+					classNames.size(), next.getGeneration());
+			var classNameList = List.copyOf(classNames);
+			for (var listener : listeners) {
+				listener.contextReplaced(previous, next, changedEntries, classNameList);
+			}
+		} finally {
+			release(next);
+		}
+	}
+
+	private static void addTopLevelClassNames(Set<String> classNames, JarIndex jarIndex) {
+		if (jarIndex != null) {
+			classNames.addAll(jarIndex.getTopLevelClassNames());
+		}
+	}
+
+}
@@ -0,0 +1,184 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import bbj.interop.trace.Trace;
+
+/**
+ * Watches the jars and class directories of the open classpath contexts and
+ * reports which of them changed on disk.
+ * <p>
+ * Jars are watched through their parent directory, class directories with
+ * all their subdirectories. Build tools write a jar in several steps, so
+ * changes are reported once no further change arrived for a short while.
+ */
+class ClassPathWatcher {
+
+	private static final long QUIET_PERIOD_MS = 500;
+
+	private final Consumer<Set<Path>> listener;
+	private final WatchService watchService;
+	/**
+	 * Number of contexts watching each entry.
+	 */
+	private final Map<Path, Integer> entries = new HashMap<>();
+	private final Map<WatchKey, Path> directories = new HashMap<>();
+	private final Set<Path> changed = new HashSet<>();
+	private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		var thread = new Thread(runnable, "bbj-interop-classpath-changes");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private ScheduledFuture<?> pendingReport;
+
+	/**
+	 * @param listener receives the changed entries on a background thread
+	 */
+	ClassPathWatcher(Consumer<Set<Path>> listener) throws IOException {
+		this.listener = listener;
+		this.watchService = FileSystems.getDefault().newWatchService();
+		var thread = new Thread(this::processEvents, "bbj-interop-classpath-watch");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	synchronized void watch(Collection<Path> paths) {
+		for (var entry : paths) {
+			if (entries.merge(entry, 1, Integer::sum) > 1) {
+				continue;
+			}
+			try {
+				if (Files.isDirectory(entry)) {
+					try (var subdirectories = Files.walk(entry)) {
+						for (var directory : (Iterable<Path>) subdirectories.filter(Files::isDirectory)::iterator) {
+							register(directory);
+						}
+					}
+				} else if (entry.getParent() != null) {
+					register(entry.getParent());
+				}
+			} catch (IOException e) {
+				Trace.warn("Cannot watch %s: %s", entry, e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Stops reporting changes of the given entries, once every context that
+	 * watched them has unwatched them. Directories stay registered, events
+	 * for entries that are no longer watched are ignored.
+	 */
+	synchronized void unwatch(Collection<Path> paths) {
+		for (var entry : paths) {
+			entries.computeIfPresent(entry, (key, count) -> count > 1 ? count - 1 : null);
+		}
+	}
+
+	private void register(Path directory) throws IOException {
+		if (!directories.containsValue(directory)) {
+			directories.put(directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), directory);
+		}
+	}
+
+	private void processEvents() {
+		try {
+			while (true) {
+				var key = watchService.take();
+				synchronized (this) {
+					var directory = directories.get(key);
+					for (var event : key.pollEvents()) {
+						if (directory == null || event.kind() == OVERFLOW) {
+							continue;
+						}
+						var file = directory.resolve((Path) event.context());
+						var entry = findEntry(file);
+						if (entry != null) {
+							changed.add(entry);
+							if (event.kind() == ENTRY_CREATE && Files.isDirectory(file)) {
+								registerNew(file);
+							}
+						}
+					}
+					if (!key.reset()) {
+						directories.remove(key);
+					}
+					if (!changed.isEmpty()) {
+						scheduleReport();
+					}
+				}
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			// shutting down
+		}
+	}
+
+	/**
+	 * Registers a directory created inside a watched class directory.
+	 */
+	private void registerNew(Path directory) {
+		try {
+			register(directory);
+		} catch (IOException e) {
+			Trace.warn("Cannot watch %s: %s", directory, e.getMessage());
+		}
+	}
+
+	/**
+	 * The watched entry a file belongs to: the jar itself or the class
+	 * directory that contains it.
+	 */
+	private Path findEntry(Path file) {
+		for (var path = file; path != null; path = path.getParent()) {
+			if (entries.containsKey(path)) {
+				return path;
+			}
+		}
+		return null;
+	}
+
+	private void scheduleReport() {
+		if (pendingReport != null) {
+			pendingReport.cancel(false);
+		}
+		pendingReport = scheduler.schedule(this::report, QUIET_PERIOD_MS, TimeUnit.MILLISECONDS);
+	}
+
+	private void report() {
+		Set<Path> report;
+		synchronized (this) {
+			report = Set.copyOf(changed);
+			changed.clear();
+			pendingReport = null;
+		}
+		if (!report.isEmpty()) {
+			listener.accept(report);
+		}
+	}
+
+}
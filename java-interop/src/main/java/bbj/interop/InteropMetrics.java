@@ -0,0 +1,233 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryType;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.eclipse.lsp4j.jsonrpc.MessageConsumer;
+import org.eclipse.lsp4j.jsonrpc.messages.RequestMessage;
+import org.eclipse.lsp4j.jsonrpc.messages.ResponseMessage;
+
+import bbj.interop.data.RequestStats;
+import bbj.interop.data.ServiceStats;
+import bbj.interop.index.ClassMetadataIndex;
+
+/**
+ * Request, cache and memory statistics of the whole interop service.
+ * <p>
+ * Requests are timed at the JSON-RPC message level: from receiving a request
+ * message until its response has been written, so the numbers include
+ * queuing and serialization.
+ */
+public class InteropMetrics implements InteropMetricsMBean {
+
+	public static final String OBJECT_NAME = "bbj.interop:type=InteropMetrics";
+
+	private static final long[] LATENCY_BUCKETS_MILLIS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000 };
+
+	private final ClassMetadataIndex metadataIndex;
+	private final ClassPathContexts contexts;
+	private final AtomicInteger connections = new AtomicInteger();
+	private final Map<String, MethodMetrics> methods = new ConcurrentHashMap<>();
+
+	public InteropMetrics(ClassMetadataIndex metadataIndex, ClassPathContexts contexts) {
+		this.metadataIndex = metadataIndex;
+		this.contexts = contexts;
+	}
+
+	/**
+	 * Registers the metrics with the platform MBean server.
+	 */
+	public void registerMBean() throws JMException {
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+	}
+
+	/**
+	 * Counts a new connection and returns the message wrapper that times its
+	 * requests. Incoming and outgoing messages of the connection pass through
+	 * the same wrapper, so request and response are matched by id.
+	 */
+	public Function<MessageConsumer, MessageConsumer> connectionOpened() {
+		connections.incrementAndGet();
+		var pending = new ConcurrentHashMap<String, PendingRequest>();
+		return consumer -> message -> {
+			if (message instanceof RequestMessage) {
+				var request = (RequestMessage) message;
+				pending.put(request.getId(), new PendingRequest(request.getMethod(), System.nanoTime()));
+				consumer.consume(message);
+			} else if (message instanceof ResponseMessage) {
+				consumer.consume(message);
+				var response = (ResponseMessage) message;
+				var request = pending.remove(response.getId());
+				if (request != null) {
+					methods.computeIfAbsent(request.method, method -> new MethodMetrics())
+							.record(System.nanoTime() - request.startNanos, response.getError() != null);
+				}
+			} else {
+				consumer.consume(message);
+			}
+		};
+	}
+
+	public void connectionClosed() {
+		connections.decrementAndGet();
+	}
+
+	public ServiceStats getStats() {
+		var stats = new ServiceStats();
+		stats.connections = connections.get();
+		var requests = new TreeMap<String, RequestStats>();
+		methods.forEach((method, metrics) -> requests.put(method, metrics.toStats()));
+		stats.requests = requests;
+		stats.latencyBucketsMillis = LATENCY_BUCKETS_MILLIS.clone();
+
+		stats.metadataCacheHits = metadataIndex.getHits();
+		stats.metadataCacheMisses = metadataIndex.getMisses();
+		stats.metadataCacheHitRatio = getMetadataCacheHitRatio();
+		stats.metadataJars = metadataIndex.getJarCount();
+		stats.metadataClasses = metadataIndex.getClassCount();
+
+		for (var context : contexts.getContexts()) {
+			var index = context.getClassPathIndex();
+			stats.classPathContexts++;
+			stats.indexedJars += index.getJarCount();
+			stats.indexedPackages += index.getPackageCount();
+			stats.indexedClasses += index.getClassCount();
+		}
+
+		var classLoading = ManagementFactory.getClassLoadingMXBean();
+		stats.loadedClasses = classLoading.getLoadedClassCount();
+		stats.unloadedClasses = classLoading.getUnloadedClassCount();
+		for (var pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.NON_HEAP && pool.getName().contains("Metaspace")) {
+				stats.metaspaceUsedBytes += pool.getUsage().getUsed();
+				stats.metaspaceCommittedBytes += pool.getUsage().getCommitted();
+			}
+		}
+		var heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+		stats.heapUsedBytes = heap.getUsed();
+		stats.heapMaxBytes = heap.getMax();
+		return stats;
+	}
+
+	@Override
+	public int getConnections() {
+		return connections.get();
+	}
+
+	@Override
+	public long getRequestCount() {
+		return methods.values().stream().mapToLong(metrics -> metrics.count.sum()).sum();
+	}
+
+	@Override
+	public long getRequestErrors() {
+		return methods.values().stream().mapToLong(metrics -> metrics.errors.sum()).sum();
+	}
+
+	@Override
+	public long getMetadataCacheHits() {
+		return metadataIndex.getHits();
+	}
+
+	@Override
+	public long getMetadataCacheMisses() {
+		return metadataIndex.getMisses();
+	}
+
+	@Override
+	public double getMetadataCacheHitRatio() {
+		long hits = metadataIndex.getHits();
+		long total = hits + metadataIndex.getMisses();
+		return total > 0 ? (double) hits / total : 0;
+	}
+
+	@Override
+	public int getClassPathContexts() {
+		return contexts.getContexts().size();
+	}
+
+	@Override
+	public int getIndexedJars() {
+		return contexts.getContexts().stream().mapToInt(context -> context.getClassPathIndex().getJarCount()).sum();
+	}
+
+	@Override
+	public int getIndexedPackages() {
+		return contexts.getContexts().stream().mapToInt(context -> context.getClassPathIndex().getPackageCount())
+				.sum();
+	}
+
+	@Override
+	public int getIndexedClasses() {
+		return contexts.getContexts().stream().mapToInt(context -> context.getClassPathIndex().getClassCount()).sum();
+	}
+
+	@Override
+	public int getMetadataClasses() {
+		return metadataIndex.getClassCount();
+	}
+
+	private static class PendingRequest {
+		final String method;
+		final long startNanos;
+
+		PendingRequest(String method, long startNanos) {
+			this.method = method;
+			this.startNanos = startNanos;
+		}
+	}
+
+	private static class MethodMetrics {
+		final LongAdder count = new LongAdder();
+		final LongAdder errors = new LongAdder();
+		final LongAdder totalNanos = new LongAdder();
+		final AtomicLong maxNanos = new AtomicLong();
+		final AtomicLongArray histogram = new AtomicLongArray(LATENCY_BUCKETS_MILLIS.length + 1);
+
+		void record(long nanos, boolean error) {
+			count.increment();
+			if (error) {
+				errors.increment();
+			}
+			totalNanos.add(nanos);
+			maxNanos.accumulateAndGet(nanos, Math::max);
+			long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+			int bucket = 0;
+			while (bucket < LATENCY_BUCKETS_MILLIS.length && millis > LATENCY_BUCKETS_MILLIS[bucket]) {
+				bucket++;
+			}
+			histogram.incrementAndGet(bucket);
+		}
+
+		RequestStats toStats() {
+			var stats = new RequestStats();
+			stats.count = count.sum();
+			stats.errors = errors.sum();
+			stats.meanMillis = stats.count > 0 ? totalNanos.sum() / 1e6 / stats.count : 0;
+			stats.maxMillis = maxNanos.get() / 1e6;
+			stats.latencyHistogram = new long[histogram.length()];
+			for (int i = 0; i < stats.latencyHistogram.length; i++) {
+				stats.latencyHistogram[i] = histogram.get(i);
+			}
+			return stats;
+		}
+	}
+
+}
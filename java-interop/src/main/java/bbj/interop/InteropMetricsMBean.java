@@ -0,0 +1,36 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop;
+
+/**
+ * JMX view of {@link InteropMetrics}, registered as
+ * {@value InteropMetrics#OBJECT_NAME} when {@link InteropSettings#JMX} is set.
+ */
+public interface InteropMetricsMBean {
+
+	int getConnections();
+
+	long getRequestCount();
+
+	long getRequestErrors();
+
+	long getMetadataCacheHits();
+
+	long getMetadataCacheMisses();
+
+	double getMetadataCacheHitRatio();
+
+	int getClassPathContexts();
+
+	int getIndexedJars();
+
+	int getIndexedPackages();
+
+	int getIndexedClasses();
+
+	int getMetadataClasses();
+
+}
@@ -7,91 +7,565 @@ package bbj.interop;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.lang.reflect.Constructor;
-import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
-import java.net.URLClassLoader;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.util.Arrays;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import org.eclipse.lsp4j.jsonrpc.CancelChecker;
+import org.eclipse.lsp4j.jsonrpc.CompletableFutures;
+import org.eclipse.lsp4j.jsonrpc.ResponseErrorException;
+import org.eclipse.lsp4j.jsonrpc.messages.ResponseError;
+import org.eclipse.lsp4j.jsonrpc.messages.ResponseErrorCode;
 import org.eclipse.lsp4j.jsonrpc.services.JsonRequest;
 
-import com.google.common.base.Stopwatch;
-import com.google.common.collect.Lists;
 import com.google.common.primitives.Primitives;
-import com.google.common.reflect.ClassPath;
 
 import bbj.interop.data.ClassInfo;
+import bbj.interop.data.ClassInfoBatchParams;
+import bbj.interop.data.ClassInfoChunk;
+import bbj.interop.data.ClassInfoPage;
 import bbj.interop.data.ClassInfoParams;
+import bbj.interop.data.ClassInfosPageParams;
+import bbj.interop.data.ClassInfosStreamParams;
+import bbj.interop.data.ClassNamesParams;
 import bbj.interop.data.ClassPathInfoParams;
+import bbj.interop.data.ClassPathReloadResult;
+import bbj.interop.data.ClassSearchParams;
+import bbj.interop.data.ClassesInvalidatedParams;
+import bbj.interop.data.EncodedClassInfos;
 import bbj.interop.data.FieldInfo;
+import bbj.interop.data.FindMembersParams;
+import bbj.interop.data.MemberMatch;
 import bbj.interop.data.MethodInfo;
+import bbj.interop.data.NamedClassPathParams;
 import bbj.interop.data.PackageInfoParams;
+import bbj.interop.data.PackageSummary;
+import bbj.interop.data.PackageTreeNode;
+import bbj.interop.data.ServiceStats;
+import bbj.interop.data.SubtypesParams;
+import bbj.interop.data.TraceDumpParams;
+import bbj.interop.data.TraceEventInfo;
 import bbj.interop.data.ParameterInfo;
+import bbj.interop.InteropSettings.MetadataBackend;
+import bbj.interop.index.ClassMetadataIndex;
+import bbj.interop.index.ClassPathIndex;
+import bbj.interop.index.InheritedMembers;
+import bbj.interop.index.TypeNames;
+import bbj.interop.trace.Trace;
+import bbj.interop.trace.TraceEvent;
+import bbj.interop.trace.TraceLevel;
 
 public class InteropService {
 
-	private BbjClassLoader classLoader = new BbjClassLoader(new URL[] {}, ClassLoader.getPlatformClassLoader());
-	private ClassPath classPath = null;
+	private static final int DEFAULT_SEARCH_LIMIT = 50;
 
-	public ClassPath getClassPath() {
-		if (classPath == null) {
-			try {
-				classPath = ClassPath.from(classLoader);
-			} catch (IOException e) {
-				e.printStackTrace();
+	private static final int DEFAULT_PAGE_SIZE = 100;
+
+	private static final int DEFAULT_SUBTYPES_LIMIT = 1000;
+
+	private static final String DEFAULT_CLASSPATH = "";
+
+	private static final CancelChecker NOT_CANCELABLE = () -> {
+	};
+
+	private final ClassMetadataIndex metadataIndex;
+	private final ClassPathContexts contexts;
+	private final InteropMetrics metrics;
+	private final Executor requestExecutor;
+	/**
+	 * The classpath contexts of this connection by name, each with its own
+	 * class loader. Jars they have in common share their index data.
+	 */
+	private final Map<String, ClassPathContext> classPaths = new ConcurrentHashMap<>();
+	private final ClassPathContexts.Listener contextListener = this::contextReplaced;
+	private LanguageServer client;
+	private volatile boolean disposed;
+	private final MetadataBackend metadataBackend = InteropSettings.getMetadataBackend();
+
+	/**
+	 * @param requestExecutor runs the requests, so that a slow request does
+	 *                        not block the connection
+	 */
+	public InteropService(ClassMetadataIndex metadataIndex, ClassPathContexts contexts, InteropMetrics metrics,
+			Executor requestExecutor) {
+		this.metadataIndex = metadataIndex;
+		this.contexts = contexts;
+		this.metrics = metrics;
+		this.requestExecutor = requestExecutor;
+		classPaths.put(DEFAULT_CLASSPATH, contexts.acquire(Collections.emptyList(), NOT_CANCELABLE));
+		contexts.addListener(contextListener);
+	}
+
+	/**
+	 * The index of the default classpath.
+	 */
+	public ClassPathIndex getClassPathIndex() {
+		var context = retainContext(DEFAULT_CLASSPATH);
+		// the index stays readable once the class loader is closed
+		contexts.release(context);
+		return context.getClassPathIndex();
+	}
+
+	/**
+	 * Returns the context of a named classpath with a reference for the
+	 * caller, to be released with {@link ClassPathContexts#release} when it
+	 * is done. A name that was not loaded yet starts out with an empty
+	 * classpath, like a new connection. The reference is taken while the
+	 * entry is locked, so the context cannot be replaced and closed in
+	 * between.
+	 *
+	 * @throws CancellationException once the connection is disposed
+	 */
+	private ClassPathContext retainContext(String classPathName) {
+		var name = classPathName(classPathName);
+		var context = classPaths.compute(name, (key, current) -> {
+			if (disposed) {
+				throw new CancellationException("The connection is closed");
 			}
+			var result = current != null ? current : contexts.acquire(Collections.emptyList(), NOT_CANCELABLE);
+			contexts.retain(result);
+			return result;
+		});
+		if (disposed) {
+			// added while dispose() released the others
+			releaseClassPath(name, context);
+			contexts.release(context);
+			throw new CancellationException("The connection is closed");
 		}
-		return classPath;
+		return context;
 	}
 
+	/**
+	 * Removes a classpath of this connection and releases its context,
+	 * unless another thread did so already.
+	 */
+	private void releaseClassPath(String name, ClassPathContext context) {
+		if (classPaths.remove(name, context)) {
+			contexts.release(context);
+		}
+	}
+
+	private static String classPathName(String classPathName) {
+		return classPathName != null ? classPathName : DEFAULT_CLASSPATH;
+	}
+
+	/**
+	 * Sets the remote proxy used to send notifications to the language server.
+	 */
+	public void connect(LanguageServer client) {
+		this.client = client;
+	}
+
+	/**
+	 * Releases the shared classpath contexts, called when the connection is
+	 * closed.
+	 */
+	public synchronized void dispose() {
+		disposed = true;
+		contexts.removeListener(contextListener);
+		classPaths.forEach(this::releaseClassPath);
+	}
+
+	/**
+	 * Moves the classpaths of this connection that use the replaced context
+	 * to its new generation and tells the language server which classes to
+	 * reload.
+	 */
+	private void contextReplaced(ClassPathContext previous, ClassPathContext next, List<Path> changedEntries,
+			List<String> classNames) {
+		var names = new ArrayList<String>();
+		synchronized (this) {
+			classPaths.forEach((name, context) -> {
+				if (context == previous) {
+					names.add(name);
+				}
+			});
+			for (var name : names) {
+				contexts.retain(next);
+				// unless the classpath was reloaded meanwhile
+				if (classPaths.replace(name, previous, next)) {
+					contexts.release(previous);
+				} else {
+					contexts.release(next);
+				}
+			}
+		}
+		for (var name : names) {
+			var params = new ClassesInvalidatedParams();
+			params.classPathName = name;
+			params.entries = changedEntries.stream().map(Path::toString).collect(Collectors.toList());
+			params.classNames = classNames;
+			params.generation = next.getGeneration();
+			if (client != null) {
+				client.classesInvalidated(params);
+			}
+		}
+	}
+
+	/**
+	 * Runs a request on the request executor. Long running requests check
+	 * the given {@link CancelChecker} between classes and jars, so a
+	 * {@code $/cancelRequest} stops them early.
+	 */
+	private <T> CompletableFuture<T> async(Function<CancelChecker, T> request) {
+		return CompletableFutures.computeAsync(requestExecutor, request);
+	}
+
+	/**
+	 * Runs a request on the context of a classpath. The request holds a
+	 * reference to the context until it completes, so reloading the classpath
+	 * meanwhile does not close the class loader the request is using.
+	 */
+	private <T> CompletableFuture<T> async(String classPathName,
+			BiFunction<ClassPathContext, CancelChecker, T> request) {
+		return async(cancelChecker -> {
+			var context = retainContext(classPathName);
+			try {
+				return request.apply(context, cancelChecker);
+			} finally {
+				contexts.release(context);
+			}
+		});
+	}
+
+	/**
+	 * Returns every package of the JDK and the default classpath that
+	 * contains classes.
+	 */
 	@JsonRequest
-	public CompletableFuture<List<PackageInfoParams>> getTopLevelPackages() {
-		var topLevelPackages = new HashSet<String>();
-		Arrays.stream(Package.getPackages()).forEach((info) -> {
-			topLevelPackages.add(info.getName());
+	public CompletableFuture<List<PackageSummary>> getTopLevelPackages() {
+		return async(DEFAULT_CLASSPATH, (context, cancelChecker) -> {
+			var packageNames = List.copyOf(context.getPackageTree().getPackageNames());
+			var packages = new ArrayList<PackageSummary>(packageNames.size());
+			for (int i = 0; i < packageNames.size(); i++) {
+				var summary = new PackageSummary();
+				summary.packageName = packageNames.get(i);
+				// sub packages directly follow their parent in name order
+				summary.hasSubpackages = i + 1 < packageNames.size()
+						&& packageNames.get(i + 1).startsWith(summary.packageName + ".");
+				packages.add(summary);
+			}
+			return packages;
 		});
-		return CompletableFuture.completedFuture(topLevelPackages.stream().map(packageName -> {
-			var packInfo = new PackageInfoParams();
-			packInfo.packageName = packageName;
-			return packInfo;
-		}).toList());
+	}
+
+	/**
+	 * Returns the packages of the JDK and a classpath as a tree of name
+	 * segments with class counts. The tree is cached until the classpath
+	 * changes.
+	 */
+	@JsonRequest
+	public CompletableFuture<List<PackageTreeNode>> getPackageTree(NamedClassPathParams params) {
+		return async(params != null ? params.classPathName : null,
+				(context, cancelChecker) -> context.getPackageTree().getRoots());
 	}
 
 	@JsonRequest
 	public CompletableFuture<List<ClassInfo>> getClassInfos(PackageInfoParams params) {
-		return CompletableFuture.completedFuture(collectClassesByPackage(params.packageName));
+		return async(params.classPathName, (context, cancelChecker) -> collectClassesByPackage(context,
+				params.packageName, params.declaredOnly, cancelChecker));
+	}
+
+	/**
+	 * Returns one page of the classes of a package, so that large packages
+	 * can be transferred and linked incrementally.
+	 */
+	@JsonRequest
+	public CompletableFuture<ClassInfoPage> getClassInfosPage(ClassInfosPageParams params) {
+		return async(params.classPathName, (context, cancelChecker) -> {
+			var classNames = context.getTopLevelClasses(params.packageName);
+			int from = 0;
+			if (params.cursor != null) {
+				int position = Collections.binarySearch(classNames, params.cursor);
+				from = position >= 0 ? position + 1 : -position - 1;
+			}
+			int pageSize = params.pageSize != null ? params.pageSize : DEFAULT_PAGE_SIZE;
+			if (pageSize <= 0) {
+				throw new ResponseErrorException(new ResponseError(ResponseErrorCode.InvalidParams,
+						"pageSize must be positive: " + pageSize, null));
+			}
+			int to = (int) Math.min((long) from + pageSize, classNames.size());
+			var page = new ClassInfoPage();
+			page.classes = loadClassInfos(context, classNames.subList(from, to), params.declaredOnly, cancelChecker);
+			page.nextCursor = to < classNames.size() ? classNames.get(to - 1) : null;
+			return page;
+		});
+	}
+
+	/**
+	 * Sends the classes of a package as {@code classInfosChunk} notifications
+	 * while they are loaded and answers with the number of classes once all
+	 * chunks have been sent.
+	 */
+	@JsonRequest
+	public CompletableFuture<Integer> streamClassInfos(ClassInfosStreamParams params) {
+		return async(params.classPathName, (context, cancelChecker) -> {
+			var receiver = client;
+			if (receiver == null) {
+				throw new ResponseErrorException(new ResponseError(ResponseErrorCode.InvalidRequest,
+						"streamClassInfos needs a connected client to receive the chunks", null));
+			}
+			var classNames = context.getTopLevelClasses(params.packageName);
+			int chunkSize = params.chunkSize > 0 ? params.chunkSize : DEFAULT_PAGE_SIZE;
+			for (int from = 0; from < classNames.size(); from += chunkSize) {
+				var chunk = new ClassInfoChunk();
+				chunk.partialResultToken = params.partialResultToken;
+				chunk.packageName = params.packageName;
+				chunk.classes = loadClassInfos(context,
+						classNames.subList(from, Math.min(classNames.size(), from + chunkSize)), params.declaredOnly,
+						cancelChecker);
+				receiver.classInfosChunk(chunk);
+			}
+			return classNames.size();
+		});
+	}
+
+	/**
+	 * Same as {@link #getClassInfos}, but dictionary encoded: every name and
+	 * type is sent once, members refer to them by index.
+	 */
+	@JsonRequest
+	public CompletableFuture<EncodedClassInfos> getClassInfosEncoded(PackageInfoParams params) {
+		return async(params.classPathName, (context, cancelChecker) -> ClassInfoEncoder.encode(
+				collectClassesByPackage(context, params.packageName, params.declaredOnly, cancelChecker)));
 	}
 
 	@JsonRequest
 	public CompletableFuture<ClassInfo> getClassInfo(ClassInfoParams params) {
-		var classInfo = loadClassInfo(params.className);
-		return CompletableFuture.completedFuture(classInfo);
+		return async(params.classPathName,
+				(context, cancelChecker) -> loadClassInfo(context, params.className, params.declaredOnly));
+	}
+
+	@JsonRequest
+	public CompletableFuture<List<ClassInfo>> getClassInfoBatch(ClassInfoBatchParams params) {
+		return async(params.classPathName, (context, cancelChecker) -> collectClassInfoBatch(context,
+				params.classNames, params.depth, params.declaredOnly, cancelChecker));
+	}
+
+	/**
+	 * Same as {@link #getClassInfoBatch}, but dictionary encoded.
+	 */
+	@JsonRequest
+	public CompletableFuture<EncodedClassInfos> getClassInfoBatchEncoded(ClassInfoBatchParams params) {
+		return async(params.classPathName, (context, cancelChecker) -> ClassInfoEncoder.encode(
+				collectClassInfoBatch(context, params.classNames, params.depth, params.declaredOnly, cancelChecker)));
+	}
+
+	/**
+	 * Returns the fully qualified names of all top-level classes on the
+	 * classpath, sorted, optionally one page at a time.
+	 */
+	@JsonRequest
+	public CompletableFuture<List<String>> getAllClassNames(ClassNamesParams params) {
+		return async(params != null ? params.classPathName : null, (context, cancelChecker) -> {
+			var classNames = context.getClassNames();
+			if (params == null) {
+				return classNames.slice(0, 0);
+			}
+			return classNames.slice(params.offset, params.limit);
+		});
+	}
+
+	/**
+	 * Returns the fully qualified names of the classes whose simple name
+	 * best matches the query, best match first.
+	 */
+	@JsonRequest
+	public CompletableFuture<List<String>> searchClasses(ClassSearchParams params) {
+		int limit = params.limit > 0 ? params.limit : DEFAULT_SEARCH_LIMIT;
+		return async(params.classPathName,
+				(context, cancelChecker) -> context.getClassNames().search(params.query, limit));
+	}
+
+	/**
+	 * Returns the classes that extend or implement a type, answered from the
+	 * index without loading any class.
+	 */
+	@JsonRequest
+	public CompletableFuture<List<String>> getSubtypes(SubtypesParams params) {
+		int limit = params.limit > 0 ? params.limit : DEFAULT_SUBTYPES_LIMIT;
+		return async(params.classPathName,
+				(context, cancelChecker) -> context.getSubtypes(params.className, params.transitive, limit));
+	}
+
+	/**
+	 * Returns the public methods and fields whose name starts with the
+	 * prefix, with the classes declaring them, e.g. to complete members of an
+	 * untyped receiver.
+	 */
+	@JsonRequest
+	public CompletableFuture<List<MemberMatch>> findMembers(FindMembersParams params) {
+		int limit = params.limit > 0 ? params.limit : DEFAULT_SEARCH_LIMIT;
+		return async(params.classPathName,
+				(context, cancelChecker) -> context.getMemberNames().search(params.namePrefix, limit));
+	}
+
+	/**
+	 * Returns request, cache and memory statistics of the whole service.
+	 */
+	@JsonRequest
+	public CompletableFuture<ServiceStats> getStats() {
+		return async(cancelChecker -> metrics.getStats());
+	}
+
+	/**
+	 * Returns the most recent events of the in-memory trace buffer, oldest
+	 * first.
+	 */
+	@JsonRequest
+	public CompletableFuture<List<TraceEventInfo>> dumpTrace(TraceDumpParams params) {
+		return async(cancelChecker -> {
+			var minLevel = TraceLevel.parse(params != null ? params.level : null, TraceLevel.TRACE);
+			var events = Trace.getEvents().stream().filter(event -> event.getLevel().isEnabled(minLevel))
+					.map(InteropService::toTraceEventInfo).collect(Collectors.toList());
+			int limit = params != null && params.limit > 0 ? params.limit : events.size();
+			return events.subList(Math.max(0, events.size() - limit), events.size());
+		});
+	}
+
+	private static TraceEventInfo toTraceEventInfo(TraceEvent event) {
+		var info = new TraceEventInfo();
+		info.time = Instant.ofEpochMilli(event.getTimeMillis()).toString();
+		info.level = event.getLevel().name();
+		info.thread = event.getThread();
+		info.message = event.getMessage();
+		info.durationMillis = event.getDurationNanos() >= 0 ? event.getDurationNanos() / 1e6 : null;
+		if (event.getThrowable() != null) {
+			var stackTrace = new StringWriter();
+			event.getThrowable().printStackTrace(new PrintWriter(stackTrace));
+			info.exception = stackTrace.toString();
+		}
+		return info;
 	}
 
 	@JsonRequest
 	public CompletableFuture<Boolean> loadClasspath(ClassPathInfoParams params) {
-		var sw = Stopwatch.createStarted();
-		System.out.println("Loading additional jars for " + String.join(", ", params.classPathEntries) + "...");
+		return async(cancelChecker -> addToClasspath(params, cancelChecker));
+	}
+
+	/**
+	 * Replaces the classpath of this connection. Unlike {@link #loadClasspath},
+	 * the entries are not appended: the result gets its own class loader,
+	 * jars that did not change keep their index, and the previous class
+	 * loader is closed once no connection uses it anymore.
+	 */
+	@JsonRequest
+	public CompletableFuture<ClassPathReloadResult> reloadClasspath(ClassPathInfoParams params) {
+		return async(cancelChecker -> replaceClasspath(params, cancelChecker));
+	}
 
+	/**
+	 * The jars are indexed without holding the lock of this service, so other
+	 * classpath requests and {@link #dispose()} are not blocked meanwhile. If
+	 * another request changed the classpath in between, its result is
+	 * extended instead; the jars indexed already are taken from the cache.
+	 */
+	private boolean addToClasspath(ClassPathInfoParams params, CancelChecker cancelChecker) {
+		Trace.info("Loading additional jars for %s...", String.join(", ", params.classPathEntries));
+		var name = classPathName(params.classPathName);
+		var entries = new ArrayList<URL>();
+		addClassPathEntries(params, entries, cancelChecker);
+		while (true) {
+			// the new entries extend the current classpath
+			var current = retainContext(name);
+			ClassPathContext next;
+			try {
+				var urls = new ArrayList<URL>(current.getUrls());
+				entries.forEach(url -> addUrl(urls, url));
+				// connections with the same classpath share one class loader and index
+				next = contexts.acquire(urls, cancelChecker);
+			} finally {
+				contexts.release(current);
+			}
+			synchronized (this) {
+				checkNotDisposed(next);
+				if (!classPaths.replace(name, current, next)) {
+					contexts.release(next);
+					continue;
+				}
+			}
+			contexts.release(current);
+			return true;
+		}
+	}
+
+	/**
+	 * Like {@link #addToClasspath}, the jars are indexed without holding the
+	 * lock of this service.
+	 */
+	private ClassPathReloadResult replaceClasspath(ClassPathInfoParams params, CancelChecker cancelChecker) {
+		Trace.info("Reloading classpath with %s...", String.join(", ", params.classPathEntries));
+		var urls = new ArrayList<URL>();
+		addClassPathEntries(params, urls, cancelChecker);
+		var name = classPathName(params.classPathName);
+		var next = contexts.acquire(urls, cancelChecker);
+		ClassPathContext previous;
+		synchronized (this) {
+			checkNotDisposed(next);
+			previous = classPaths.put(name, next);
+		}
+		if (previous == null) {
+			previous = contexts.acquire(Collections.emptyList(), NOT_CANCELABLE);
+		}
+
+		var result = new ClassPathReloadResult();
+		var before = previous.getUrls().stream().map(URL::toString).collect(Collectors.toList());
+		var after = next.getUrls().stream().map(URL::toString).collect(Collectors.toList());
+		result.addedEntries = after.stream().filter(url -> !before.contains(url)).collect(Collectors.toList());
+		result.removedEntries = before.stream().filter(url -> !after.contains(url)).collect(Collectors.toList());
+		result.changedPackages = new ArrayList<>(
+				previous.getClassPathIndex().getChangedPackages(next.getClassPathIndex()));
+		result.generation = next.getGeneration();
+		contexts.discard(previous);
+		return result;
+	}
+
+	/**
+	 * Called with the lock of this service held, which {@link #dispose()}
+	 * holds as well. Releases the context that was about to be added once the
+	 * connection is disposed.
+	 *
+	 * @throws CancellationException once the connection is disposed
+	 */
+	private void checkNotDisposed(ClassPathContext next) {
+		if (disposed) {
+			contexts.release(next);
+			throw new CancellationException("The connection is closed");
+		}
+	}
+
+	/**
+	 * Resolves the classpath entries of a request to URLs, expanding
+	 * {@code dir/*} to the jars of that directory, and appends the new ones.
+	 */
+	private void addClassPathEntries(ClassPathInfoParams params, List<URL> urls, CancelChecker cancelChecker) {
 		if (params.classPathEntries.size() == 1 && params.classPathEntries.get(0).equals("file:")) {
-			System.out.println("Classpath empty. Defaulting to BBj's lib directory.");
+			Trace.info("Classpath empty. Defaulting to BBj's lib directory.");
 			params.classPathEntries.clear();
 
 			String homedir = System.getProperty("basis.BBjHome") + "/.lib/*";
@@ -115,7 +589,7 @@ public class InteropService {
 
 		params.classPathEntries.forEach(entry -> {
 			try {
-				System.out.println("Add to classpath: " + entry);
+				Trace.info("Add to classpath: %s", entry);
 				if (entry != null && entry.endsWith("/*")) {
 					File file = Path.of(new URI(entry.substring(0, entry.length() - 1))).toFile();
 					if (file.exists() && file.isDirectory()) {
@@ -124,46 +598,190 @@ public class InteropService {
 								@Override
 								public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
 										throws IOException {
+									cancelChecker.checkCanceled();
 									if (file.toString().endsWith(".jar")) {
-										classLoader.addUrl(file.toUri().toURL());
+										addUrl(urls, file.toUri().toURL());
 									}
 									return super.visitFile(file, attrs);
 								}
 							});
 						} catch (IOException e) {
-							e.printStackTrace();
+							Trace.error(e, "Failed to list jars of %s", entry);
 						}
 					}
 				} else {
-					classLoader.addUrl(new URL(entry));
+					addUrl(urls, new URL(entry));
 				}
-				classPath = ClassPath.from(classLoader);
-			} catch (IOException | URISyntaxException e) {
-				e.printStackTrace();
+			} catch (IOException | URISyntaxException | IllegalArgumentException e) {
+				Trace.error(e, "Invalid classpath entry %s", entry);
 			}
 		});
-		System.out.println("Finished loading additional jars in: " + sw.elapsed(TimeUnit.MILLISECONDS) + "ms");
-		return CompletableFuture.completedFuture(true);
 	}
 
-	private List<ClassInfo> collectClassesByPackage(String packageName) {
-		var sw = Stopwatch.createStarted();
-		Stream<ClassInfo> collected;
-		if ("java.lang".equals(packageName)) {
-			collected = Arrays.asList(JavaLangPackage.JAVA_LANG).stream()
-					.map(className -> loadClassInfo("java.lang." + className));
-		} else {
-			var topLevelClasses = getClassPath().getTopLevelClasses(packageName);
-			collected = topLevelClasses.stream().filter(info -> !info.getSimpleName().contains("-"))
-					.map(info -> loadClassInfo(info.getName()));
+	private static void addUrl(List<URL> urls, URL url) {
+		if (urls.stream().noneMatch(existing -> existing.toString().equals(url.toString()))) {
+			urls.add(url);
+		}
+	}
+
+	/**
+	 * Loads the requested classes and, breadth first up to {@code depth}
+	 * levels, the types their public members refer to. Referenced types that
+	 * cannot be resolved are left out, requested ones are returned with their
+	 * error.
+	 */
+	private List<ClassInfo> collectClassInfoBatch(ClassPathContext context, List<String> classNames, int depth,
+			boolean declaredOnly, CancelChecker cancelChecker) {
+		var result = new ArrayList<ClassInfo>();
+		var visited = new HashSet<String>();
+		var level = new ArrayList<String>();
+		classNames.stream().filter(visited::add).forEach(level::add);
+		for (int i = 0; !level.isEmpty(); i++) {
+			var next = new ArrayList<String>();
+			for (var className : level) {
+				cancelChecker.checkCanceled();
+				var classInfo = loadClassInfo(context, className, declaredOnly);
+				if (i > 0 && classInfo.error != null) {
+					continue;
+				}
+				result.add(classInfo);
+				if (i < depth && classInfo.error == null) {
+					referencedTypes(classInfo, declaredOnly).filter(visited::add).forEach(next::add);
+				}
+			}
+			level = next;
 		}
-		var result = collected.collect(Collectors.toList());
-		System.out.println("Loaded " + result.size() + " classes from package " + packageName + " took "
-				+ sw.stop().elapsed(TimeUnit.MILLISECONDS) + "ms");
 		return result;
 	}
 
-	private ClassInfo loadClassInfo(String className) {
+	private static Stream<String> referencedTypes(ClassInfo classInfo, boolean withSupertypes) {
+		var fieldTypes = classInfo.fields.stream().map(f -> f.type);
+		if (withSupertypes) {
+			fieldTypes = Stream.concat(Stream.concat(Stream.of(classInfo.superClass), classInfo.interfaces.stream()),
+					fieldTypes);
+		}
+		var memberTypes = Stream.concat(classInfo.methods.stream(), classInfo.constructors.stream())
+				.flatMap(m -> Stream.concat(Stream.of(m.returnType), m.parameters.stream().map(p -> p.type)));
+		return Stream.concat(fieldTypes, memberTypes).filter(type -> type != null)
+				.map(type -> type.endsWith("[]") ? type.substring(0, type.indexOf('[')) : type)
+				.filter(type -> !isPrimitive(type));
+	}
+
+	private List<ClassInfo> collectClassesByPackage(ClassPathContext context, String packageName,
+			boolean declaredOnly, CancelChecker cancelChecker) {
+		try (var span = Trace.span(TraceLevel.INFO)) {
+			var result = loadClassInfos(context, context.getTopLevelClasses(packageName), declaredOnly,
+					cancelChecker);
+			span.message("Loaded %d classes from package %s", result.size(), packageName);
+			return result;
+		}
+	}
+
+	private List<ClassInfo> loadClassInfos(ClassPathContext context, List<String> classNames, boolean declaredOnly,
+			CancelChecker cancelChecker) {
+		var result = new ArrayList<ClassInfo>(classNames.size());
+		for (var className : classNames) {
+			cancelChecker.checkCanceled();
+			result.add(loadClassInfo(context, className, declaredOnly));
+		}
+		return result;
+	}
+
+	/**
+	 * Loads a class with its declared members and, unless
+	 * {@code declaredOnly}, the public members inherited from its supertypes.
+	 * Only declared members are cached, see {@link InheritedMembers}.
+	 */
+	private ClassInfo loadClassInfo(ClassPathContext context, String className, boolean declaredOnly) {
+		var declared = loadDeclaredClassInfo(context, className);
+		if (declaredOnly || declared.error != null) {
+			return declared;
+		}
+		return InheritedMembers.flatten(declared, supertype -> loadDeclaredClassInfo(context, supertype));
+	}
+
+	private ClassInfo loadDeclaredClassInfo(ClassPathContext context, String className) {
+		var origin = findOrigin(context, className);
+		if (origin != null) {
+			var cached = metadataIndex.get(origin, className);
+			if (cached != null) {
+				return cached;
+			}
+		}
+		ClassInfo classInfo;
+		boolean cacheable = true;
+		if (metadataBackend == MetadataBackend.CLASS_FILE && !isPrimitive(className)) {
+			classInfo = readClassInfo(context, className);
+		} else {
+			try {
+				classInfo = reflectClassInfo(context, className);
+			} catch (NoClassDefFoundError error) {
+				// The class itself exists but cannot be linked, its class file
+				// still describes the members. Not cached, so reflection
+				// reports the class once its dependencies are available.
+				classInfo = readClassInfo(context, className);
+				cacheable = false;
+				if (classInfo.error != null) {
+					classInfo.error = "No class definition found: " + error.getMessage();
+				}
+			}
+		}
+		classInfo = TypeNames.intern(classInfo);
+		if (origin != null && cacheable && classInfo.error == null) {
+			metadataIndex.put(origin, className, classInfo);
+		}
+		return classInfo;
+	}
+
+	/**
+	 * Returns the jar that defines the given class, or {@code null} if the
+	 * class is unknown or does not come from a jar.
+	 */
+	private Path findOrigin(ClassPathContext context, String className) {
+		var resource = context.getClassLoader().getResource(className.replace('.', '/') + ".class");
+		if (resource == null) {
+			var nestedName = toNestedBinaryName(className);
+			if (nestedName != null) {
+				resource = context.getClassLoader().getResource(nestedName.replace('.', '/') + ".class");
+			}
+		}
+		return ClassMetadataIndex.originOf(resource);
+	}
+
+	private ClassInfo readClassInfo(ClassPathContext context, String className) {
+		var classInfo = new ClassInfo();
+		classInfo.name = className;
+		try {
+			var classFile = context.getClassFileLoader().find(className);
+			if (classFile == null) {
+				var nestedName = toNestedBinaryName(className);
+				if (nestedName != null) {
+					classFile = context.getClassFileLoader().find(nestedName);
+				}
+			}
+			if (classFile != null) {
+				return context.getClassFileLoader().toClassInfo(className, classFile);
+			}
+			classInfo.error = "Class not found: " + className;
+		} catch (IOException | RuntimeException e) {
+			// reported for this class only, like a class reflection cannot load
+			classInfo.error = "Invalid class file for " + className + ": " + e.getMessage();
+		}
+		classInfo.fields = Collections.emptyList();
+		classInfo.methods = Collections.emptyList();
+		classInfo.constructors = Collections.emptyList();
+		classInfo.interfaces = Collections.emptyList();
+		return classInfo;
+	}
+
+	private static boolean isPrimitive(String className) {
+		return Primitives.allPrimitiveTypes().stream().anyMatch(it -> it.getSimpleName().equals(className));
+	}
+
+	/**
+	 * @throws NoClassDefFoundError if the class exists but cannot be linked
+	 */
+	private ClassInfo reflectClassInfo(ClassPathContext context, String className) {
 		// Inner class names (Outer.Inner) are handled by loadClassByName(),
 		// which converts dot-separated names to $-separated JVM names when
 		// Class.forName() fails. See #314 for context.
@@ -172,41 +790,41 @@ public class InteropService {
 		try {
 			Optional<Class<?>> primitiv = Primitives.allPrimitiveTypes().stream()
 					.filter(it -> it.getSimpleName().equals(className)).findFirst();
-			var clazz = primitiv.isPresent() ? primitiv.get() : loadClassByName(className);
+			var clazz = primitiv.isPresent() ? primitiv.get() : loadClassByName(context, className);
 
 			classInfo.simpleName = clazz.getCanonicalName();
 			classInfo.packageName = clazz.getPackageName();
 			classInfo.isDeprecated = clazz.isAnnotationPresent(Deprecated.class);
-			classInfo.fields = Stream.of(clazz.getFields()).map(f -> {
-				var fi = new FieldInfo();
-				fi.name = f.getName();
-				fi.type = getProperTypeName(f.getType());
-				fi.declaringClass = f.getDeclaringClass().getName();
-				fi.isStatic = Modifier.isStatic(f.getModifiers());
-				fi.isDeprecated = f.isAnnotationPresent(Deprecated.class);
-				return fi;
-			}).collect(Collectors.toList());
-			List<Method> methods = Lists.newArrayList(clazz.getMethods());
-			if (clazz.isInterface()) {
-				// add implicit Object declared methods
-				methods.addAll(
-						Stream.of(Object.class.getMethods()).filter(m -> Modifier.isPublic(m.getModifiers())).toList());
-			}
-			classInfo.methods = methods.stream().map(m -> {
-				var mi = new MethodInfo();
-				mi.name = m.getName();
-				mi.declaringClass = m.getDeclaringClass().getName();
-				mi.returnType = getProperTypeName(m.getReturnType());
-				mi.isStatic = Modifier.isStatic(m.getModifiers());
-				mi.isDeprecated = m.isAnnotationPresent(Deprecated.class);
-				mi.parameters = Stream.of(m.getParameters()).map(p -> {
-					var pi = new ParameterInfo();
-					pi.name = p.getName();
-					pi.type = getProperTypeName(p.getType());
-					return pi;
-				}).collect(Collectors.toList());
-				return mi;
-			}).collect(Collectors.toList());
+			classInfo.isInterface = clazz.isInterface();
+			classInfo.superClass = clazz.getSuperclass() != null ? getProperTypeName(clazz.getSuperclass()) : null;
+			classInfo.interfaces = Stream.of(clazz.getInterfaces()).map(this::getProperTypeName)
+					.collect(Collectors.toList());
+			classInfo.fields = Stream.of(clazz.getDeclaredFields()).filter(f -> Modifier.isPublic(f.getModifiers()))
+					.map(f -> {
+						var fi = new FieldInfo();
+						fi.name = f.getName();
+						fi.type = getProperTypeName(f.getType());
+						fi.declaringClass = f.getDeclaringClass().getName();
+						fi.isStatic = Modifier.isStatic(f.getModifiers());
+						fi.isDeprecated = f.isAnnotationPresent(Deprecated.class);
+						return fi;
+					}).collect(Collectors.toList());
+			classInfo.methods = Stream.of(clazz.getDeclaredMethods()).filter(m -> Modifier.isPublic(m.getModifiers()))
+					.map(m -> {
+						var mi = new MethodInfo();
+						mi.name = m.getName();
+						mi.declaringClass = m.getDeclaringClass().getName();
+						mi.returnType = getProperTypeName(m.getReturnType());
+						mi.isStatic = Modifier.isStatic(m.getModifiers());
+						mi.isDeprecated = m.isAnnotationPresent(Deprecated.class);
+						mi.parameters = Stream.of(m.getParameters()).map(p -> {
+							var pi = new ParameterInfo();
+							pi.name = p.getName();
+							pi.type = getProperTypeName(p.getType());
+							return pi;
+						}).collect(Collectors.toList());
+						return mi;
+					}).collect(Collectors.toList());
 			classInfo.constructors = Stream.of(clazz.getConstructors()).map(c -> {
 				var ci = new MethodInfo();
 				ci.name = clazz.getSimpleName();
@@ -222,53 +840,63 @@ public class InteropService {
 				}).collect(Collectors.toList());
 				return ci;
 			}).collect(Collectors.toList());
-			System.out.println("ClassInfo: " + className + " has " + classInfo.methods.size() + " methods, " + classInfo.fields.size() + " fields, " + classInfo.constructors.size() + " constructors");
+			Trace.debug("ClassInfo: %s has %d methods, %d fields, %d constructors", className,
+					classInfo.methods.size(), classInfo.fields.size(), classInfo.constructors.size());
 		} catch (ClassNotFoundException exc) {
 			classInfo.fields = Collections.emptyList();
 			classInfo.methods = Collections.emptyList();
 			classInfo.constructors = Collections.emptyList();
+			classInfo.interfaces = Collections.emptyList();
 			classInfo.error = "Class not found: " + className;
-		} catch (NoClassDefFoundError error) {
-			classInfo.fields = Collections.emptyList();
-			classInfo.methods = Collections.emptyList();
-			classInfo.constructors = Collections.emptyList();
-			classInfo.error = "No class definition found: " + error.getMessage();
 		}
 		return classInfo;
 	}
 
 	private static Pattern FIRST_UPPER_SEGMENT = Pattern.compile("\\.[A-Z]");
 
-	private Class<?> loadClassByName(String className) throws ClassNotFoundException {
+	private Class<?> loadClassByName(ClassPathContext context, String className) throws ClassNotFoundException {
 		try {
-			return Class.forName(className, false, classLoader);
+			return Class.forName(className, false, context.getClassLoader());
 		} catch (ClassNotFoundException e) {
-			var matches = FIRST_UPPER_SEGMENT.matcher(className).results().limit(2).count();
-			if (matches > 1) {
-				// Probably nested class FQN
-				var segements = className.split("\\.");
-				var delim = ".";
-				if (segements.length > 1) {
-					// Try with canonical name
-					var canonicalName = new StringBuilder();
-					for (int i = 0; i < segements.length; i++) {
-						var qualifier = segements[i];
-						canonicalName.append(qualifier);
-						if (i < (segements.length - 1)) {
-							if (!qualifier.isEmpty() && Character.isUpperCase(qualifier.charAt(0))) {
-								delim = "$";
-							}
-							canonicalName.append(delim);
+			var nestedName = toNestedBinaryName(className);
+			if (nestedName != null) {
+				// Nested class, try to load with canonical name
+				return Class.forName(nestedName, false, context.getClassLoader());
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Converts a probable nested class FQN in canonical form (Outer.Inner) to
+	 * its JVM binary name (Outer$Inner), or returns {@code null} if the name
+	 * does not look like a nested class.
+	 */
+	private static String toNestedBinaryName(String className) {
+		var matches = FIRST_UPPER_SEGMENT.matcher(className).results().limit(2).count();
+		if (matches > 1) {
+			// Probably nested class FQN
+			var segements = className.split("\\.");
+			var delim = ".";
+			if (segements.length > 1) {
+				// Try with canonical name
+				var canonicalName = new StringBuilder();
+				for (int i = 0; i < segements.length; i++) {
+					var qualifier = segements[i];
+					canonicalName.append(qualifier);
+					if (i < (segements.length - 1)) {
+						if (!qualifier.isEmpty() && Character.isUpperCase(qualifier.charAt(0))) {
+							delim = "$";
 						}
-					}
-					if ("$".equals(delim)) {
-						// Nested class, try to load with canonical name
-						return Class.forName(canonicalName.toString(), false, classLoader);
+						canonicalName.append(delim);
 					}
 				}
+				if ("$".equals(delim)) {
+					return canonicalName.toString();
+				}
 			}
-			throw e;
 		}
+		return null;
 	}
 
 	private String getProperTypeName(Class<?> clazz) {
@@ -280,19 +908,4 @@ public class InteropService {
 		return name != null ? name : clazz.getName();
 	}
 
-	static class BbjClassLoader extends URLClassLoader {
-
-		public BbjClassLoader(URL[] urls, ClassLoader parent) {
-			super(urls, parent);
-		}
-
-		/*
-		 * Make super implementation accessible
-		 * 
-		 */
-		public void addUrl(URL url) {
-			super.addURL(url);
-		}
-	}
-
 }
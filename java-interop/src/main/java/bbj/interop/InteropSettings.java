@@ -0,0 +1,262 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import bbj.interop.trace.TraceLevel;
+
+/**
+ * Tuning knobs of the interop service. All values are read from system
+ * properties, so they can be passed with {@code -D} on the BBjServices or
+ * {@code gradle run} command line.
+ */
+public final class InteropSettings {
+
+	/**
+	 * Directory of the persistent class metadata index. Set to an empty
+	 * string to keep the metadata in memory only.
+	 */
+	public static final String INDEX_DIR = "bbj.interop.indexDir";
+
+	/**
+	 * Class index snapshot imported at startup, see {@link SnapshotExportApp}.
+	 * Defaults to {@code lib/java-interop.snapshot} in the BBj installation,
+	 * set to an empty string to skip the import.
+	 */
+	public static final String SNAPSHOT = "bbj.interop.snapshot";
+
+	/**
+	 * Where the stored class metadata is kept, see {@link IndexStorage}.
+	 */
+	public static final String INDEX_STORAGE = "bbj.interop.indexStorage";
+
+	/**
+	 * How class metadata is computed, see {@link MetadataBackend}.
+	 */
+	public static final String BACKEND = "bbj.interop.backend";
+
+	/**
+	 * Number of jars scanned concurrently when classpath entries are added.
+	 * Defaults to the number of available processors, {@code 1} disables
+	 * parallel scanning.
+	 */
+	public static final String SCAN_PARALLELISM = "bbj.interop.scanParallelism";
+
+	/**
+	 * Seconds a classpath context is kept after its last connection closed,
+	 * so a restarted language server can reuse it.
+	 */
+	public static final String CONTEXT_IDLE_SECONDS = "bbj.interop.contextIdleSeconds";
+
+	/**
+	 * How requests are dispatched, see {@link DispatchMode}.
+	 */
+	public static final String DISPATCH = "bbj.interop.dispatch";
+
+	/**
+	 * Size of the request thread pool used for concurrent dispatch on JVMs
+	 * without virtual threads.
+	 */
+	public static final String REQUEST_THREADS = "bbj.interop.requestThreads";
+
+	/**
+	 * Comma separated packages whose class infos are loaded in the background
+	 * when the service starts. Defaults to the packages the language server
+	 * requests first, set to an empty string to disable the warm-up.
+	 */
+	public static final String WARMUP_PACKAGES = "bbj.interop.warmupPackages";
+
+	/**
+	 * Comma separated classpath entries loaded before the warm-up packages,
+	 * in the format of {@code loadClasspath}. Defaults to BBj's lib directory
+	 * when running inside BBjServices.
+	 */
+	public static final String WARMUP_CLASSPATH = "bbj.interop.warmupClasspath";
+
+	/**
+	 * Set to {@code false} to stop watching the classpath jars and class
+	 * directories for changes.
+	 */
+	public static final String WATCH_CLASSPATH = "bbj.interop.watchClasspath";
+
+	/**
+	 * Set to {@code true} to register {@link InteropMetrics} as a JMX MBean.
+	 */
+	public static final String JMX = "bbj.interop.jmx";
+
+	/**
+	 * Minimum level of the events recorded in the in-memory trace buffer:
+	 * {@code off}, {@code error}, {@code warn}, {@code info}, {@code debug}
+	 * (default) or {@code trace}.
+	 */
+	public static final String TRACE_LEVEL = "bbj.interop.traceLevel";
+
+	/**
+	 * Minimum level of the trace events that are also printed to standard
+	 * out, {@code info} by default.
+	 */
+	public static final String TRACE_CONSOLE_LEVEL = "bbj.interop.traceConsoleLevel";
+
+	/**
+	 * Records one in every n debug and trace events, {@code 1} records all.
+	 */
+	public static final String TRACE_SAMPLE_RATE = "bbj.interop.traceSampleRate";
+
+	/**
+	 * Number of events kept in the trace buffer.
+	 */
+	public static final String TRACE_BUFFER_SIZE = "bbj.interop.traceBufferSize";
+
+	private static final String DEFAULT_WARMUP_PACKAGES = "java.lang,java.sql,com.basis.startup.type,"
+			+ "com.basis.startup.type.sysgui,com.basis.bbj.proxies,com.basis.bbj.proxies.sysgui,"
+			+ "com.basis.bbj.proxies.event,com.basis.bbj.proxies.servlet";
+
+	public enum DispatchMode {
+		/**
+		 * Every request runs independently, on a virtual thread where
+		 * available.
+		 */
+		CONCURRENT,
+		/**
+		 * The requests of a connection run one after another on a worker
+		 * thread of that connection.
+		 */
+		SEQUENTIAL
+	}
+
+	public enum MetadataBackend {
+		/**
+		 * Load classes with {@code Class.forName} and use reflection.
+		 */
+		REFLECTION("reflection"),
+		/**
+		 * Parse the {@code .class} files without loading the classes into
+		 * the JVM.
+		 */
+		CLASS_FILE("classfile");
+
+		private final String id;
+
+		MetadataBackend(String id) {
+			this.id = id;
+		}
+
+		/**
+		 * The value of the {@link InteropSettings#BACKEND} property, also
+		 * tags the metadata the backend computed.
+		 */
+		public String getId() {
+			return id;
+		}
+	}
+
+	public enum IndexStorage {
+		/**
+		 * Stored metadata is read into the heap, the default.
+		 */
+		HEAP,
+		/**
+		 * Stored metadata stays in memory-mapped files and is decoded per
+		 * request, so the page cache is shared by all interop processes.
+		 */
+		MAPPED
+	}
+
+	private InteropSettings() {
+	}
+
+	public static Path getIndexDir() {
+		var value = System.getProperty(INDEX_DIR);
+		if (value == null) {
+			return Path.of(System.getProperty("user.home"), ".bbj-interop", "index");
+		}
+		return value.isBlank() ? null : Path.of(value);
+	}
+
+	/**
+	 * @return {@code null} if no snapshot is configured
+	 */
+	public static Path getSnapshotFile() {
+		var value = System.getProperty(SNAPSHOT);
+		if (value == null) {
+			var bbjHome = System.getProperty("basis.BBjHome");
+			return bbjHome != null ? Path.of(bbjHome, "lib", "java-interop.snapshot") : null;
+		}
+		return value.isBlank() ? null : Path.of(value);
+	}
+
+	public static IndexStorage getIndexStorage() {
+		var value = System.getProperty(INDEX_STORAGE, "heap");
+		return "mapped".equalsIgnoreCase(value) ? IndexStorage.MAPPED : IndexStorage.HEAP;
+	}
+
+	public static MetadataBackend getMetadataBackend() {
+		var value = System.getProperty(BACKEND, MetadataBackend.REFLECTION.getId());
+		return MetadataBackend.CLASS_FILE.getId().equalsIgnoreCase(value) ? MetadataBackend.CLASS_FILE
+				: MetadataBackend.REFLECTION;
+	}
+
+	public static DispatchMode getDispatchMode() {
+		var value = System.getProperty(DISPATCH, "concurrent");
+		return "sequential".equalsIgnoreCase(value) ? DispatchMode.SEQUENTIAL : DispatchMode.CONCURRENT;
+	}
+
+	public static int getRequestThreads() {
+		return Math.max(1, Integer.getInteger(REQUEST_THREADS, Math.max(4, Runtime.getRuntime().availableProcessors())));
+	}
+
+	public static long getContextIdleSeconds() {
+		return Math.max(0, Long.getLong(CONTEXT_IDLE_SECONDS, 300));
+	}
+
+	public static TraceLevel getTraceLevel() {
+		return TraceLevel.parse(System.getProperty(TRACE_LEVEL), TraceLevel.DEBUG);
+	}
+
+	public static TraceLevel getTraceConsoleLevel() {
+		return TraceLevel.parse(System.getProperty(TRACE_CONSOLE_LEVEL), TraceLevel.INFO);
+	}
+
+	public static int getTraceSampleRate() {
+		return Math.max(1, Integer.getInteger(TRACE_SAMPLE_RATE, 1));
+	}
+
+	public static int getTraceBufferSize() {
+		return Math.max(1, Integer.getInteger(TRACE_BUFFER_SIZE, 4096));
+	}
+
+	public static boolean isClassPathWatchingEnabled() {
+		return !"false".equalsIgnoreCase(System.getProperty(WATCH_CLASSPATH));
+	}
+
+	public static boolean isJmxEnabled() {
+		return Boolean.getBoolean(JMX);
+	}
+
+	public static List<String> getWarmupPackages() {
+		return splitList(System.getProperty(WARMUP_PACKAGES, DEFAULT_WARMUP_PACKAGES));
+	}
+
+	public static List<String> getWarmupClassPath() {
+		// "file:" selects the BBj lib directory, like an empty client classpath
+		var defaultValue = System.getProperty("basis.BBjHome") != null ? "file:" : "";
+		return splitList(System.getProperty(WARMUP_CLASSPATH, defaultValue));
+	}
+
+	private static List<String> splitList(String value) {
+		return Arrays.stream(value.split(",")).map(String::trim).filter(entry -> !entry.isEmpty())
+				.collect(Collectors.toList());
+	}
+
+	public static int getScanParallelism() {
+		return Math.max(1, Integer.getInteger(SCAN_PARALLELISM, Runtime.getRuntime().availableProcessors()));
+	}
+
+}
@@ -5,9 +5,26 @@
  ******************************************************************************/
 package bbj.interop;
 
+import org.eclipse.lsp4j.jsonrpc.services.JsonNotification;
+
+import bbj.interop.data.ClassInfoChunk;
+import bbj.interop.data.ClassesInvalidatedParams;
+
 /**
  * JSON-RPC interface for the language server counterpart.
  */
 public interface LanguageServer {
-    
+
+    /**
+     * Partial result of a {@code streamClassInfos} request.
+     */
+    @JsonNotification
+    void classInfosChunk(ClassInfoChunk chunk);
+
+    /**
+     * Classes that changed on disk and were reloaded with a new class loader.
+     */
+    @JsonNotification
+    void classesInvalidated(ClassesInvalidatedParams params);
+
 }
@@ -0,0 +1,67 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors that run the JSON-RPC requests of {@link InteropService}.
+ */
+final class RequestExecutors {
+
+	private RequestExecutors() {
+	}
+
+	/**
+	 * Runs every request on its own virtual thread when the JVM supports them
+	 * (JDK 21+). On older JVMs a shared pool of {@code poolSize} platform
+	 * threads is used instead. The service is compiled for Java 17, so the
+	 * virtual thread factory method is looked up reflectively.
+	 */
+	static ExecutorService newConcurrentExecutor(int poolSize) {
+		try {
+			var factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+			var count = new AtomicInteger();
+			return Executors.newFixedThreadPool(poolSize, runnable -> {
+				var thread = new Thread(runnable, "bbj-interop-request-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	/**
+	 * Runs the requests of one connection one after another, in the order
+	 * they were received.
+	 */
+	static ExecutorService newSequentialExecutor() {
+		return Executors.newSingleThreadExecutor(runnable -> {
+			var thread = new Thread(runnable, "bbj-interop-connection");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Runs background work on {@code poolSize} minimum priority threads, so
+	 * it yields to the requests of connected clients.
+	 */
+	static ExecutorService newBackgroundExecutor(int poolSize) {
+		var count = new AtomicInteger();
+		return Executors.newFixedThreadPool(poolSize, runnable -> {
+			var thread = new Thread(runnable, "bbj-interop-background-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			return thread;
+		});
+	}
+
+}
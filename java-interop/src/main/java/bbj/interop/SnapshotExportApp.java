@@ -0,0 +1,99 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.TreeSet;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Stopwatch;
+
+import bbj.interop.data.ClassPathInfoParams;
+import bbj.interop.data.PackageInfoParams;
+import bbj.interop.index.ClassMetadataIndex;
+import bbj.interop.trace.Trace;
+import bbj.interop.trace.TraceLevel;
+
+/**
+ * Command line mode that computes the class infos of a classpath and writes
+ * them to a snapshot file, e.g. to ship it with a BBj installation:
+ *
+ * <pre>
+ * java-interop-snapshot &lt;snapshot file&gt; &lt;classpath entry&gt;...
+ * </pre>
+ *
+ * Entries are paths or {@code file:} URLs; {@code dir/*} adds all jars of a
+ * directory. Besides the classes of the classpath, the warm-up packages (see
+ * {@link InteropSettings#WARMUP_PACKAGES}) are exported. The service imports
+ * the snapshot at startup, see {@link InteropSettings#SNAPSHOT}.
+ */
+public class SnapshotExportApp {
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: java-interop-snapshot <snapshot file> <classpath entry>...");
+            System.exit(2);
+        }
+        Trace.configure(InteropSettings.getTraceLevel(), TraceLevel.INFO, InteropSettings.getTraceSampleRate(),
+            InteropSettings.getTraceBufferSize());
+        try {
+            export(Path.of(args[0]), Arrays.asList(args).subList(1, args.length));
+        } catch (IOException | CompletionException exc) {
+            exc.printStackTrace();
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    private static void export(Path snapshot, Iterable<String> entries) throws IOException {
+        var sw = Stopwatch.createStarted();
+        var metadataIndex = new ClassMetadataIndex(null, InteropSettings.getMetadataBackend().getId());
+        var contexts = new ClassPathContexts(0, metadataIndex, false);
+        var metrics = new InteropMetrics(metadataIndex, contexts);
+        var executor = RequestExecutors.newBackgroundExecutor(Runtime.getRuntime().availableProcessors());
+        var service = new InteropService(metadataIndex, contexts, metrics, executor);
+        try {
+            var params = new ClassPathInfoParams();
+            params.classPathEntries = new ArrayList<>();
+            entries.forEach(entry -> params.classPathEntries.add(toClassPathEntry(entry)));
+            service.loadClasspath(params).join();
+
+            var packages = new TreeSet<String>(InteropSettings.getWarmupPackages());
+            contexts.getContexts().forEach(context -> packages.addAll(context.getClassPathIndex().getPackages().keySet()));
+            var requests = packages.stream().map(packageName -> {
+                var packageParams = new PackageInfoParams();
+                packageParams.packageName = packageName;
+                return service.getClassInfos(packageParams);
+            }).toList();
+            requests.forEach(request -> request.join());
+
+            int classCount = metadataIndex.exportSnapshot(snapshot);
+            Trace.info("Exported %d classes of %d packages to %s in %dms", classCount, packages.size(), snapshot,
+                sw.elapsed(TimeUnit.MILLISECONDS));
+        } finally {
+            service.dispose();
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Converts a path to the URL format of {@code loadClasspath}.
+     */
+    private static String toClassPathEntry(String entry) {
+        if (entry.startsWith("file:")) {
+            return entry;
+        }
+        if (entry.endsWith("/*") || entry.endsWith("\\*")) {
+            return Path.of(entry.substring(0, entry.length() - 2)).toAbsolutePath().toUri() + "*";
+        }
+        return Path.of(entry).toAbsolutePath().toUri().toString();
+    }
+
+}
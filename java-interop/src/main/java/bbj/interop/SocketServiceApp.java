@@ -11,15 +11,53 @@ import java.nio.channels.AsynchronousServerSocketChannel;
 import java.nio.channels.AsynchronousSocketChannel;
 import java.nio.channels.Channels;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.logging.Logger;
 
+import javax.management.JMException;
+
 import org.eclipse.lsp4j.jsonrpc.Launcher;
 
+import bbj.interop.InteropSettings.DispatchMode;
+import bbj.interop.InteropSettings.IndexStorage;
+import bbj.interop.index.ClassMetadataIndex;
+import bbj.interop.index.JdkIndex;
+import bbj.interop.trace.Trace;
+
 public class SocketServiceApp extends Thread{
 
     protected final Logger logger = Logger.getLogger(SocketServiceApp.class.getName());
 
+    /**
+     * Class metadata is keyed by the defining jar, so one index serves all connections.
+     */
+    protected final ClassMetadataIndex metadataIndex = new ClassMetadataIndex(InteropSettings.getIndexDir(),
+            InteropSettings.getIndexStorage() == IndexStorage.MAPPED,
+            InteropSettings.getMetadataBackend().getId());
+
+    /**
+     * Class loaders and class indexes, shared by connections with the same classpath.
+     */
+    protected final ClassPathContexts contexts = new ClassPathContexts(InteropSettings.getContextIdleSeconds(),
+            metadataIndex, InteropSettings.isClassPathWatchingEnabled());
+
+    protected final InteropMetrics metrics = new InteropMetrics(metadataIndex, contexts);
+
+    private final ExecutorService connectionWatcher = Executors.newCachedThreadPool();
+
+    private final DispatchMode dispatchMode = InteropSettings.getDispatchMode();
+
+    /**
+     * Shared by all connections in concurrent dispatch mode.
+     */
+    private final ExecutorService concurrentExecutor = dispatchMode == DispatchMode.CONCURRENT
+            ? RequestExecutors.newConcurrentExecutor(InteropSettings.getRequestThreads())
+            : null;
+
     public static void main(String[] args) {
+        Trace.configure(InteropSettings.getTraceLevel(), InteropSettings.getTraceConsoleLevel(),
+            InteropSettings.getTraceSampleRate(), InteropSettings.getTraceBufferSize());
         try {
             new Thread(new SocketServiceApp()).run();
         } catch (Exception exc) {
@@ -32,6 +70,16 @@ public class SocketServiceApp extends Thread{
         try (
             var serverSocket = AsynchronousServerSocketChannel.open().bind(address)
         ) {
+            Runtime.getRuntime().addShutdownHook(new Thread(metadataIndex::flush, "bbj-interop-index-shutdown"));
+            if (InteropSettings.isJmxEnabled()) {
+                try {
+                    metrics.registerMBean();
+                } catch (JMException e) {
+                    logger.warning("Failed to register " + InteropMetrics.OBJECT_NAME + ": " + e.getMessage());
+                }
+            }
+            JdkIndex.scanInBackground(InteropSettings.getIndexDir());
+            ClassInfoWarmup.start(metadataIndex, contexts, metrics);
             logger.info("BBj Java Interop Service listening to " + address);
             while (true) {
                 var socketChannel = serverSocket.accept().get();
@@ -50,13 +98,31 @@ public class SocketServiceApp extends Thread{
     }
 
     protected void startJsonRpc(AsynchronousSocketChannel socketChannel) throws IOException {
-        var interopService = new InteropService();
-        var launcher = Launcher.createLauncher(
-            interopService,
-            LanguageServer.class,
-            Channels.newInputStream(socketChannel),
-            Channels.newOutputStream(socketChannel));
-        launcher.startListening();
+        var requestExecutor = concurrentExecutor != null ? concurrentExecutor : RequestExecutors.newSequentialExecutor();
+        var interopService = new InteropService(metadataIndex, contexts, metrics, requestExecutor);
+        var launcher = new Launcher.Builder<LanguageServer>()
+            .setLocalService(interopService)
+            .setRemoteInterface(LanguageServer.class)
+            .setInput(Channels.newInputStream(socketChannel))
+            .setOutput(Channels.newOutputStream(socketChannel))
+            .wrapMessages(metrics.connectionOpened())
+            .create();
+        interopService.connect(launcher.getRemoteProxy());
+        var listening = launcher.startListening();
+        connectionWatcher.execute(() -> {
+            try {
+                listening.get();
+            } catch (InterruptedException | ExecutionException e) {
+                // connection closed
+            } finally {
+                interopService.dispose();
+                metrics.connectionClosed();
+                if (requestExecutor != concurrentExecutor) {
+                    requestExecutor.shutdown();
+                }
+                logger.info("Connection closed.");
+            }
+        });
     }
 
 }
@@ -17,6 +17,19 @@ public class ClassInfo extends WithError {
 
     public boolean isDeprecated;
 
+    public boolean isInterface;
+
+    /**
+     * Canonical name of the superclass, {@code null} for interfaces,
+     * primitives and {@code java.lang.Object}.
+     */
+    public String superClass;
+
+    /**
+     * Canonical names of the directly implemented or extended interfaces.
+     */
+    public List<String> interfaces;
+
     public List<FieldInfo> fields;
 
     public List<MethodInfo> methods;
@@ -0,0 +1,28 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.data;
+
+import java.util.List;
+
+public class ClassInfoBatchParams extends NamedClassPathParams {
+
+    public List<String> classNames;
+
+    /**
+     * How many levels of referenced member types (field, parameter and return
+     * types) to include in addition to the requested classes. 0 returns only
+     * the requested classes.
+     */
+    public int depth;
+
+    /**
+     * Only return the declared members, see
+     * {@link PackageInfoParams#declaredOnly}. The supertypes of the returned
+     * classes count as referenced types.
+     */
+    public boolean declaredOnly;
+
+}
@@ -0,0 +1,18 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.data;
+
+import java.util.List;
+
+public class ClassInfoChunk {
+
+    public String partialResultToken;
+
+    public String packageName;
+
+    public List<ClassInfo> classes;
+
+}
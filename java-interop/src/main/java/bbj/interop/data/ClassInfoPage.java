@@ -0,0 +1,19 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.data;
+
+import java.util.List;
+
+public class ClassInfoPage {
+
+    public List<ClassInfo> classes;
+
+    /**
+     * Cursor of the next page, {@code null} if this is the last page.
+     */
+    public String nextCursor;
+
+}
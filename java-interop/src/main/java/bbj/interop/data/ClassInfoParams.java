@@ -5,10 +5,16 @@
  ******************************************************************************/
 package bbj.interop.data;
 
-public class ClassInfoParams {
+public class ClassInfoParams extends NamedClassPathParams {
 
     public String className;
-    
+
+    /**
+     * Only return the members declared by the class itself, inherited members
+     * are then looked up through {@link ClassInfo#superClass} and
+     * {@link ClassInfo#interfaces}.
+     */
+    public boolean declaredOnly;
 }
 
 
@@ -0,0 +1,25 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.data;
+
+/**
+ * Requests one page of the classes of a package. Classes are returned in
+ * name order; the cursor is the last class name of the previous page.
+ */
+public class ClassInfosPageParams extends PackageInfoParams {
+
+    /**
+     * {@link ClassInfoPage#nextCursor} of the previous page, {@code null} for
+     * the first page.
+     */
+    public String cursor;
+
+    /**
+     * Maximum number of classes per page, must be positive, defaults to 100.
+     */
+    public Integer pageSize;
+
+}
@@ -0,0 +1,24 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.data;
+
+/**
+ * Requests the classes of a package as a series of {@link ClassInfoChunk}
+ * notifications, sent while the package is loaded.
+ */
+public class ClassInfosStreamParams extends PackageInfoParams {
+
+    /**
+     * Passed back in every chunk, so the client can route them.
+     */
+    public String partialResultToken;
+
+    /**
+     * Maximum number of classes per chunk, defaults to 100.
+     */
+    public int chunkSize;
+
+}
@@ -0,0 +1,19 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.data;
+
+/**
+ * Page of the class name table to return. Without a limit all names from
+ * {@code offset} on are returned; clients with very large classpaths can
+ * fetch the table in pages instead of one large message.
+ */
+public class ClassNamesParams extends NamedClassPathParams {
+
+    public int offset;
+
+    public int limit;
+
+}
@@ -8,6 +8,6 @@ package bbj.interop.data;
 
 import java.util.List;
 
-public class ClassPathInfoParams {
+public class ClassPathInfoParams extends NamedClassPathParams {
 	public List<String> classPathEntries;
 }
@@ -0,0 +1,32 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.data;
+
+import java.util.List;
+
+/**
+ * Result of {@code reloadClasspath}.
+ */
+public class ClassPathReloadResult {
+
+    /**
+     * Classpath URLs that were added or removed, after expanding
+     * {@code dir/*} entries.
+     */
+    public List<String> addedEntries;
+    public List<String> removedEntries;
+
+    /**
+     * Packages whose classes have to be requested again, sorted.
+     */
+    public List<String> changedPackages;
+
+    /**
+     * Class loader generation that now serves the classpath.
+     */
+    public int generation;
+
+}
@@ -0,0 +1,20 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.data;
+
+public class ClassSearchParams extends NamedClassPathParams {
+
+    /**
+     * Simple name prefix ({@code BBjWi}) or camel humps ({@code BWin}).
+     */
+    public String query;
+
+    /**
+     * Maximum number of results, defaults to 50.
+     */
+    public int limit;
+
+}
@@ -0,0 +1,36 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.data;
+
+import java.util.List;
+
+/**
+ * Sent when jars or class directories of the classpath changed on disk.
+ */
+public class ClassesInvalidatedParams {
+
+    /**
+     * The classpath whose classes changed, empty for the default classpath.
+     */
+    public String classPathName;
+
+    /**
+     * The changed classpath entries, as file system paths.
+     */
+    public List<String> entries;
+
+    /**
+     * Top-level classes of the changed entries, before and after the change.
+     * Their class infos have to be requested again.
+     */
+    public List<String> classNames;
+
+    /**
+     * Class loader generation that now serves the classpath.
+     */
+    public int generation;
+
+}
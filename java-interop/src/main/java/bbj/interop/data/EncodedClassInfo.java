@@ -0,0 +1,35 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.data;
+
+import java.util.List;
+
+/**
+ * {@link ClassInfo} with string table indices, see {@link EncodedClassInfos}.
+ */
+public class EncodedClassInfo extends WithError {
+
+    public int name;
+
+    public int packageName;
+
+    public int simpleName;
+
+    public boolean isDeprecated;
+
+    public boolean isInterface;
+
+    public int superClass;
+
+    public int[] interfaces;
+
+    public List<EncodedFieldInfo> fields;
+
+    public List<EncodedMethodInfo> methods;
+
+    public List<EncodedMethodInfo> constructors;
+
+}
@@ -0,0 +1,21 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.data;
+
+import java.util.List;
+
+/**
+ * Dictionary encoded form of a list of {@link ClassInfo}s. Every name and
+ * type is stored once in {@link #strings}; the encoded DTOs refer to it by
+ * index, {@code -1} stands for {@code null}.
+ */
+public class EncodedClassInfos {
+
+    public List<String> strings;
+
+    public List<EncodedClassInfo> classes;
+
+}
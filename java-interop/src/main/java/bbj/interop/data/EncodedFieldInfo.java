@@ -0,0 +1,21 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.data;
+
+/**
+ * {@link FieldInfo} with string table indices, see {@link EncodedClassInfos}.
+ */
+public class EncodedFieldInfo {
+
+    public int name;
+
+    public int type;
+
+    public int declaringClass;
+
+    public boolean isStatic;
+    public boolean isDeprecated;
+}
@@ -0,0 +1,27 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.data;
+
+/**
+ * {@link MethodInfo} with string table indices, see {@link EncodedClassInfos}.
+ * Parameters are stored as two parallel arrays.
+ */
+public class EncodedMethodInfo {
+
+    public int name;
+
+    public int returnType;
+
+    public int declaringClass;
+
+    public int[] parameterNames;
+
+    public int[] parameterTypes;
+
+    public boolean isStatic;
+    public boolean isDeprecated;
+
+}
@@ -0,0 +1,20 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.data;
+
+public class FindMembersParams extends NamedClassPathParams {
+
+    /**
+     * Start of the method or field name, matched case-insensitively.
+     */
+    public String namePrefix;
+
+    /**
+     * Maximum number of results, defaults to 50.
+     */
+    public int limit;
+
+}
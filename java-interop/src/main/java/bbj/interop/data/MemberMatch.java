@@ -0,0 +1,29 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.data;
+
+import java.util.List;
+
+/**
+ * A method or field name found by {@code findMembers}.
+ */
+public class MemberMatch {
+
+    public String name;
+
+    public boolean isMethod;
+
+    /**
+     * Number of public classes that declare a public member of this name.
+     */
+    public int classCount;
+
+    /**
+     * The first of these classes by name, at most 20.
+     */
+    public List<String> declaringClasses;
+
+}
@@ -0,0 +1,20 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.data;
+
+/**
+ * Base of the requests that refer to one of the named classpaths of a
+ * connection.
+ */
+public class NamedClassPathParams {
+
+    /**
+     * Name of the classpath, e.g. one of the {@code basis.classpath.*}
+     * names. {@code null} or empty selects the default classpath.
+     */
+    public String classPathName;
+
+}
@@ -0,0 +1,20 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.data;
+
+/**
+ * A package returned by {@code getTopLevelPackages}.
+ */
+public class PackageSummary {
+
+    public String packageName;
+
+    /**
+     * Whether packages nested in this one contain classes as well.
+     */
+    public boolean hasSubpackages;
+
+}
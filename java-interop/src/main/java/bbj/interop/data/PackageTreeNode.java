@@ -0,0 +1,28 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.data;
+
+import java.util.List;
+
+/**
+ * One segment of the package tree returned by {@code getPackageTree}. The
+ * package name is the path of segment names from the root.
+ */
+public class PackageTreeNode {
+
+    public String name;
+
+    /**
+     * Number of top-level classes directly in this package.
+     */
+    public int classCount;
+
+    /**
+     * Sub packages sorted by name, {@code null} for leaves.
+     */
+    public List<PackageTreeNode> children;
+
+}
@@ -0,0 +1,25 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.data;
+
+/**
+ * Counts and latencies of one JSON-RPC method, see {@link ServiceStats}.
+ */
+public class RequestStats {
+
+    public long count;
+
+    /**
+     * Requests answered with an error, including canceled ones.
+     */
+    public long errors;
+
+    public double meanMillis;
+    public double maxMillis;
+
+    public long[] latencyHistogram;
+
+}
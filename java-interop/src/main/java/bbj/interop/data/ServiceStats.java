@@ -0,0 +1,56 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.data;
+
+import java.util.Map;
+
+/**
+ * Runtime statistics of the interop service, returned by {@code getStats}.
+ */
+public class ServiceStats {
+
+    public int connections;
+
+    /**
+     * Statistics per JSON-RPC method, measured from receiving the request
+     * until the response is written.
+     */
+    public Map<String, RequestStats> requests;
+
+    /**
+     * Upper bounds in milliseconds of the {@link RequestStats#latencyHistogram}
+     * buckets. The last bucket counts all slower requests.
+     */
+    public long[] latencyBucketsMillis;
+
+    public long metadataCacheHits;
+    public long metadataCacheMisses;
+    public double metadataCacheHitRatio;
+
+    /**
+     * Jars and class infos held by the class metadata index.
+     */
+    public int metadataJars;
+    public int metadataClasses;
+
+    /**
+     * Classpath contexts, each with its own class loader. The jar, package
+     * and class counts are summed over all contexts.
+     */
+    public int classPathContexts;
+    public int indexedJars;
+    public int indexedPackages;
+    public int indexedClasses;
+
+    public int loadedClasses;
+    public long unloadedClasses;
+
+    public long metaspaceUsedBytes;
+    public long metaspaceCommittedBytes;
+    public long heapUsedBytes;
+    public long heapMaxBytes;
+
+}
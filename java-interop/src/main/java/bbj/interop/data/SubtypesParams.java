@@ -0,0 +1,25 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.data;
+
+public class SubtypesParams extends NamedClassPathParams {
+
+    /**
+     * Binary name of the class or interface, e.g. {@code java.util.Map$Entry}.
+     */
+    public String className;
+
+    /**
+     * Whether to include the subtypes of the subtypes.
+     */
+    public boolean transitive;
+
+    /**
+     * Maximum number of results, defaults to 1000.
+     */
+    public int limit;
+
+}
@@ -0,0 +1,22 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.data;
+
+public class TraceDumpParams {
+
+    /**
+     * Minimum level of the returned events, e.g. {@code "info"}. All
+     * recorded events are returned if not set.
+     */
+    public String level;
+
+    /**
+     * Maximum number of events, the most recent ones are returned. 0 returns
+     * the whole buffer.
+     */
+    public int limit;
+
+}
@@ -0,0 +1,34 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.data;
+
+/**
+ * A recorded trace event, see {@code dumpTrace}.
+ */
+public class TraceEventInfo {
+
+    /**
+     * ISO-8601 timestamp.
+     */
+    public String time;
+
+    public String level;
+
+    public String thread;
+
+    public String message;
+
+    /**
+     * Duration of a timed operation, {@code null} for plain events.
+     */
+    public Double durationMillis;
+
+    /**
+     * Stack trace of the exception attached to the event.
+     */
+    public String exception;
+
+}
@@ -0,0 +1,81 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.index;
+
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The parts of a parsed {@code .class} file the interop service needs. Class
+ * names are JVM binary names in dotted form (e.g. {@code java.util.Map$Entry}).
+ */
+public class ClassFile {
+
+	private static final int ACC_SYNTHETIC = 0x1000;
+
+	public int access;
+	public String name;
+	public String superName;
+	public List<String> interfaces;
+	public boolean deprecated;
+	public List<Member> fields;
+	public List<Member> methods;
+
+	/**
+	 * Nested classes referenced by this class file (from the
+	 * {@code InnerClasses} attribute), keyed by binary name.
+	 */
+	public Map<String, NestedClass> nestedClasses;
+
+	public boolean isPublic() {
+		return Modifier.isPublic(access);
+	}
+
+	public boolean isInterface() {
+		return Modifier.isInterface(access);
+	}
+
+	public static class Member {
+		public int access;
+		public String name;
+		public String descriptor;
+		public boolean deprecated;
+		/**
+		 * Names from the {@code MethodParameters} attribute, or {@code null}
+		 * if the class was compiled without {@code -parameters}.
+		 */
+		public List<String> parameterNames;
+
+		public boolean isPublic() {
+			return Modifier.isPublic(access);
+		}
+
+		public boolean isStatic() {
+			return Modifier.isStatic(access);
+		}
+
+		/**
+		 * Generated by the compiler, e.g. bridge methods and lambda bodies.
+		 */
+		public boolean isSynthetic() {
+			return (access & ACC_SYNTHETIC) != 0;
+		}
+	}
+
+	public static class NestedClass {
+		/**
+		 * Binary name of the enclosing class, {@code null} for local and
+		 * anonymous classes.
+		 */
+		public String outerName;
+		/**
+		 * Simple name, {@code null} for anonymous classes.
+		 */
+		public String simpleName;
+	}
+
+}
@@ -0,0 +1,127 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.index;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Collects the supertypes of the classes and the member names of the public
+ * classes of a jar or of the JDK while it is scanned. Class files are parsed,
+ * no class is loaded.
+ */
+final class ClassFileIndexer {
+
+	private final Map<String, List<String>> directSubtypes = new HashMap<>();
+	private final Map<String, List<String>> methods = new HashMap<>();
+	private final Map<String, List<String>> fields = new HashMap<>();
+	private final Set<String> nonPublicTypes = new HashSet<>();
+
+	/**
+	 * @return the parsed class file, {@code null} if it is not valid
+	 */
+	ClassFile add(byte[] bytes) {
+		ClassFile classFile;
+		try {
+			classFile = ClassFileReader.read(bytes);
+		} catch (IOException | RuntimeException e) {
+			// not a valid class file, the class loader rejects it as well
+			return null;
+		}
+		add(classFile);
+		return classFile;
+	}
+
+	/**
+	 * Records a class under its superclass and its interfaces and, if it is
+	 * public, under the names of its public members. Classes that are not
+	 * public are recorded as well, public subtypes may extend them. Extending
+	 * {@code java.lang.Object} is not recorded, as every class would be listed
+	 * under it.
+	 */
+	void add(ClassFile classFile) {
+		if (classFile.superName != null && !"java.lang.Object".equals(classFile.superName)) {
+			put(directSubtypes, classFile.superName, classFile.name);
+		}
+		for (var type : classFile.interfaces) {
+			put(directSubtypes, type, classFile.name);
+		}
+		if (!classFile.isPublic()) {
+			nonPublicTypes.add(TypeNames.intern(classFile.name));
+			return;
+		}
+		addMembers(methods, classFile.methods, classFile.name);
+		addMembers(fields, classFile.fields, classFile.name);
+	}
+
+	private static void addMembers(Map<String, List<String>> index, List<ClassFile.Member> members, String className) {
+		for (var member : members) {
+			// skips constructors and initializers
+			if (member.isPublic() && !member.isSynthetic() && member.name.charAt(0) != '<') {
+				put(index, member.name, className);
+			}
+		}
+	}
+
+	/**
+	 * Classes are added one after the other, so an overloaded member only
+	 * has to be compared with the last entry.
+	 */
+	private static void put(Map<String, List<String>> index, String key, String className) {
+		var classNames = index.computeIfAbsent(key, name -> new ArrayList<>());
+		if (classNames.isEmpty() || !classNames.get(classNames.size() - 1).equals(className)) {
+			classNames.add(className);
+		}
+	}
+
+	/**
+	 * Binary names of the classes by their direct superclass or interface,
+	 * sorted, including classes that are not public.
+	 */
+	Map<String, List<String>> getDirectSubtypes() {
+		return sorted(directSubtypes);
+	}
+
+	/**
+	 * Binary names of the classes that are not public.
+	 */
+	Set<String> getNonPublicTypes() {
+		return Set.copyOf(nonPublicTypes);
+	}
+
+	/**
+	 * Binary names of the public classes by the names of their public
+	 * methods, sorted.
+	 */
+	Map<String, List<String>> getMethods() {
+		return sorted(methods);
+	}
+
+	/**
+	 * Binary names of the public classes by the names of their public fields,
+	 * sorted.
+	 */
+	Map<String, List<String>> getFields() {
+		return sorted(fields);
+	}
+
+	private static Map<String, List<String>> sorted(Map<String, List<String>> index) {
+		var result = new HashMap<String, List<String>>(index.size() * 4 / 3 + 1);
+		index.forEach((key, classNames) -> {
+			var copy = new ArrayList<>(classNames);
+			Collections.sort(copy);
+			result.put(TypeNames.intern(key), List.copyOf(copy));
+		});
+		return Collections.unmodifiableMap(result);
+	}
+
+}
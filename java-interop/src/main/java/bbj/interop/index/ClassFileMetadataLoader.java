@@ -0,0 +1,236 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.index;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import bbj.interop.data.ClassInfo;
+import bbj.interop.data.FieldInfo;
+import bbj.interop.data.MethodInfo;
+import bbj.interop.data.ParameterInfo;
+
+/**
+ * Builds {@link ClassInfo}s from the {@code .class} resources of a class
+ * loader without defining the classes in the JVM.
+ * <p>
+ * The result mirrors what {@code Class.getDeclaredFields()},
+ * {@code getDeclaredMethods()} and {@code getConstructors()} return, limited
+ * to public members. Only the class file of the class itself is read, so
+ * classes with incomplete dependencies still report their members. Inherited
+ * members are added by {@link InheritedMembers}.
+ */
+public class ClassFileMetadataLoader {
+
+	private final ClassLoader classLoader;
+	private final Cache<String, Optional<ClassFile>> classFiles = CacheBuilder.newBuilder().maximumSize(4096).build();
+
+	public ClassFileMetadataLoader(ClassLoader classLoader) {
+		this.classLoader = classLoader;
+	}
+
+	/**
+	 * Parses the class with the given binary name, or returns {@code null} if
+	 * there is no such class file.
+	 *
+	 * @throws IOException if the class file cannot be read or is malformed,
+	 *                     e.g. has a constant pool index out of range
+	 */
+	public ClassFile find(String binaryName) throws IOException {
+		try {
+			return classFiles.get(binaryName, () -> Optional.ofNullable(readClassFile(binaryName))).orElse(null);
+		} catch (ExecutionException | UncheckedExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+
+	private ClassFile readClassFile(String binaryName) throws IOException {
+		try (var stream = classLoader.getResourceAsStream(binaryName.replace('.', '/') + ".class")) {
+			return stream != null ? ClassFileReader.read(stream.readAllBytes()) : null;
+		}
+	}
+
+	/**
+	 * Converts a parsed class file to the DTO returned to the language server.
+	 *
+	 * @param className the class name as requested by the client
+	 * @throws RuntimeException if a descriptor of the class file is malformed
+	 */
+	public ClassInfo toClassInfo(String className, ClassFile classFile) {
+		var classInfo = new ClassInfo();
+		classInfo.name = className;
+		classInfo.simpleName = canonicalName(classFile.name, classFile);
+		classInfo.packageName = packageName(classFile.name);
+		classInfo.isDeprecated = classFile.deprecated;
+		classInfo.isInterface = classFile.isInterface();
+		// like Class.getSuperclass(), interfaces have none
+		classInfo.superClass = classFile.superName != null && !classFile.isInterface()
+				? canonicalName(classFile.superName, classFile)
+				: null;
+		classInfo.interfaces = new ArrayList<>();
+		for (var superInterface : classFile.interfaces) {
+			classInfo.interfaces.add(canonicalName(superInterface, classFile));
+		}
+
+		classInfo.fields = new ArrayList<>();
+		for (var member : classFile.fields) {
+			if (member.isPublic()) {
+				var fi = new FieldInfo();
+				fi.name = member.name;
+				fi.type = typeName(member.descriptor, 0, classFile).name;
+				fi.declaringClass = classFile.name;
+				fi.isStatic = member.isStatic();
+				fi.isDeprecated = member.deprecated;
+				classInfo.fields.add(fi);
+			}
+		}
+
+		classInfo.methods = new ArrayList<>();
+		classInfo.constructors = new ArrayList<>();
+		for (var member : classFile.methods) {
+			if (member.isPublic() && !member.name.startsWith("<")) {
+				var mi = new MethodInfo();
+				mi.name = member.name;
+				mi.declaringClass = classFile.name;
+				mi.returnType = typeName(member.descriptor, member.descriptor.indexOf(')') + 1, classFile).name;
+				mi.isStatic = member.isStatic();
+				mi.isDeprecated = member.deprecated;
+				mi.parameters = toParameters(member, classFile);
+				classInfo.methods.add(mi);
+			} else if (member.isPublic() && "<init>".equals(member.name)) {
+				var ci = new MethodInfo();
+				ci.name = simpleName(classFile);
+				ci.returnType = className;
+				ci.declaringClass = className;
+				ci.isStatic = false;
+				ci.isDeprecated = member.deprecated;
+				ci.parameters = toParameters(member, classFile);
+				classInfo.constructors.add(ci);
+			}
+		}
+		return classInfo;
+	}
+
+	private List<ParameterInfo> toParameters(ClassFile.Member method, ClassFile context) {
+		var parameters = new ArrayList<ParameterInfo>();
+		int offset = 1; // skip '('
+		while (method.descriptor.charAt(offset) != ')') {
+			var type = typeName(method.descriptor, offset, context);
+			var pi = new ParameterInfo();
+			int index = parameters.size();
+			pi.name = method.parameterNames != null && index < method.parameterNames.size()
+					? method.parameterNames.get(index)
+					: "arg" + index;
+			pi.type = type.name;
+			parameters.add(pi);
+			offset = type.end;
+		}
+		return parameters;
+	}
+
+	/**
+	 * Decodes the field descriptor starting at {@code offset}. Like
+	 * {@code InteropService.getProperTypeName}, arrays are reported by their
+	 * component type.
+	 */
+	private TypeName typeName(String descriptor, int offset, ClassFile context) {
+		int dimensions = 0;
+		while (descriptor.charAt(offset) == '[') {
+			dimensions++;
+			offset++;
+		}
+		String name;
+		int end;
+		char kind = descriptor.charAt(offset);
+		if (kind == 'L') {
+			end = descriptor.indexOf(';', offset) + 1;
+			name = canonicalName(descriptor.substring(offset + 1, end - 1).replace('/', '.'), context);
+		} else {
+			end = offset + 1;
+			name = primitiveName(kind);
+		}
+		if (dimensions > 1) {
+			name = name + "[]".repeat(dimensions - 1);
+		}
+		return new TypeName(name, end);
+	}
+
+	private static String primitiveName(char kind) {
+		switch (kind) {
+		case 'B':
+			return "byte";
+		case 'C':
+			return "char";
+		case 'D':
+			return "double";
+		case 'F':
+			return "float";
+		case 'I':
+			return "int";
+		case 'J':
+			return "long";
+		case 'S':
+			return "short";
+		case 'Z':
+			return "boolean";
+		case 'V':
+			return "void";
+		default:
+			throw new UncheckedIOException(new IOException("Invalid descriptor type " + kind));
+		}
+	}
+
+	/**
+	 * Resolves the canonical name of a binary class name using the
+	 * {@code InnerClasses} attribute of the referencing class file. Local and
+	 * anonymous classes have no canonical name and keep their binary name.
+	 */
+	private static String canonicalName(String binaryName, ClassFile context) {
+		var nested = context.nestedClasses.get(binaryName);
+		if (nested != null) {
+			if (nested.outerName == null || nested.simpleName == null) {
+				return binaryName;
+			}
+			return canonicalName(nested.outerName, context) + "." + nested.simpleName;
+		}
+		return binaryName.replace('$', '.');
+	}
+
+	private static String simpleName(ClassFile classFile) {
+		var nested = classFile.nestedClasses.get(classFile.name);
+		if (nested != null) {
+			return nested.simpleName != null ? nested.simpleName : "";
+		}
+		return classFile.name.substring(classFile.name.lastIndexOf('.') + 1);
+	}
+
+	private static String packageName(String binaryName) {
+		int lastDot = binaryName.lastIndexOf('.');
+		return lastDot < 0 ? "" : binaryName.substring(0, lastDot);
+	}
+
+	private static class TypeName {
+		final String name;
+		final int end;
+
+		TypeName(String name, int end) {
+			this.name = name;
+			this.end = end;
+		}
+	}
+
+}
@@ -0,0 +1,231 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.index;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Minimal reader for the {@code .class} file format (JVMS chapter 4). Only the
+ * constant pool, access flags, supertypes, member signatures and the
+ * attributes relevant for deprecation, parameter names and nested classes are
+ * decoded; code and all other attributes are skipped.
+ */
+public class ClassFileReader {
+
+	private static final int MAGIC = 0xCAFEBABE;
+
+	private static final String DEPRECATED_ANNOTATION = "Ljava/lang/Deprecated;";
+
+	private final DataInputStream in;
+	private String[] utf8;
+	private int[] classNameIndex;
+
+	private ClassFileReader(byte[] bytes) {
+		this.in = new DataInputStream(new ByteArrayInputStream(bytes));
+	}
+
+	public static ClassFile read(byte[] bytes) throws IOException {
+		return new ClassFileReader(bytes).readClassFile();
+	}
+
+	private ClassFile readClassFile() throws IOException {
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not a class file");
+		}
+		in.readUnsignedShort(); // minor version
+		in.readUnsignedShort(); // major version
+		readConstantPool();
+
+		var classFile = new ClassFile();
+		classFile.access = in.readUnsignedShort();
+		classFile.name = className(in.readUnsignedShort());
+		classFile.superName = className(in.readUnsignedShort());
+		int interfaceCount = in.readUnsignedShort();
+		classFile.interfaces = new ArrayList<>(interfaceCount);
+		for (int i = 0; i < interfaceCount; i++) {
+			classFile.interfaces.add(className(in.readUnsignedShort()));
+		}
+		classFile.fields = readMembers();
+		classFile.methods = readMembers();
+		classFile.nestedClasses = Collections.emptyMap();
+
+		int attributeCount = in.readUnsignedShort();
+		for (int i = 0; i < attributeCount; i++) {
+			var attributeName = utf8[in.readUnsignedShort()];
+			int length = in.readInt();
+			switch (attributeName) {
+			case "Deprecated":
+				classFile.deprecated = true;
+				break;
+			case "RuntimeVisibleAnnotations":
+				classFile.deprecated |= readDeprecatedAnnotation();
+				break;
+			case "InnerClasses":
+				readInnerClasses(classFile);
+				break;
+			default:
+				in.skipNBytes(length);
+			}
+		}
+		return classFile;
+	}
+
+	private void readConstantPool() throws IOException {
+		int count = in.readUnsignedShort();
+		utf8 = new String[count];
+		classNameIndex = new int[count];
+		for (int i = 1; i < count; i++) {
+			int tag = in.readUnsignedByte();
+			switch (tag) {
+			case 1: // Utf8
+				utf8[i] = in.readUTF();
+				break;
+			case 7: // Class
+				classNameIndex[i] = in.readUnsignedShort();
+				break;
+			case 8: // String
+			case 16: // MethodType
+			case 19: // Module
+			case 20: // Package
+				in.skipNBytes(2);
+				break;
+			case 15: // MethodHandle
+				in.skipNBytes(3);
+				break;
+			case 3: // Integer
+			case 4: // Float
+			case 9: // Fieldref
+			case 10: // Methodref
+			case 11: // InterfaceMethodref
+			case 12: // NameAndType
+			case 17: // Dynamic
+			case 18: // InvokeDynamic
+				in.skipNBytes(4);
+				break;
+			case 5: // Long
+			case 6: // Double
+				in.skipNBytes(8);
+				i++; // takes two constant pool slots
+				break;
+			default:
+				throw new IOException("Unknown constant pool tag " + tag);
+			}
+		}
+	}
+
+	private List<ClassFile.Member> readMembers() throws IOException {
+		int count = in.readUnsignedShort();
+		var members = new ArrayList<ClassFile.Member>(count);
+		for (int i = 0; i < count; i++) {
+			var member = new ClassFile.Member();
+			member.access = in.readUnsignedShort();
+			member.name = utf8[in.readUnsignedShort()];
+			member.descriptor = utf8[in.readUnsignedShort()];
+			int attributeCount = in.readUnsignedShort();
+			for (int j = 0; j < attributeCount; j++) {
+				var attributeName = utf8[in.readUnsignedShort()];
+				int length = in.readInt();
+				switch (attributeName) {
+				case "Deprecated":
+					member.deprecated = true;
+					break;
+				case "RuntimeVisibleAnnotations":
+					member.deprecated |= readDeprecatedAnnotation();
+					break;
+				case "MethodParameters":
+					member.parameterNames = readMethodParameters();
+					break;
+				default:
+					in.skipNBytes(length);
+				}
+			}
+			members.add(member);
+		}
+		return members;
+	}
+
+	private List<String> readMethodParameters() throws IOException {
+		int count = in.readUnsignedByte();
+		var names = new ArrayList<String>(count);
+		for (int i = 0; i < count; i++) {
+			int nameIndex = in.readUnsignedShort();
+			in.readUnsignedShort(); // access flags
+			names.add(nameIndex != 0 ? utf8[nameIndex] : "arg" + i);
+		}
+		return names;
+	}
+
+	private void readInnerClasses(ClassFile classFile) throws IOException {
+		int count = in.readUnsignedShort();
+		classFile.nestedClasses = new HashMap<>(count * 2);
+		for (int i = 0; i < count; i++) {
+			var nested = new ClassFile.NestedClass();
+			var name = className(in.readUnsignedShort());
+			nested.outerName = className(in.readUnsignedShort());
+			int simpleNameIndex = in.readUnsignedShort();
+			nested.simpleName = simpleNameIndex != 0 ? utf8[simpleNameIndex] : null;
+			in.readUnsignedShort(); // access flags
+			classFile.nestedClasses.put(name, nested);
+		}
+	}
+
+	/**
+	 * Reads a {@code RuntimeVisibleAnnotations} attribute and reports whether
+	 * it contains {@link Deprecated}.
+	 */
+	private boolean readDeprecatedAnnotation() throws IOException {
+		boolean deprecated = false;
+		int count = in.readUnsignedShort();
+		for (int i = 0; i < count; i++) {
+			deprecated |= DEPRECATED_ANNOTATION.equals(skipAnnotation());
+		}
+		return deprecated;
+	}
+
+	private String skipAnnotation() throws IOException {
+		var type = utf8[in.readUnsignedShort()];
+		int pairs = in.readUnsignedShort();
+		for (int i = 0; i < pairs; i++) {
+			in.readUnsignedShort(); // element name
+			skipElementValue();
+		}
+		return type;
+	}
+
+	private void skipElementValue() throws IOException {
+		int tag = in.readUnsignedByte();
+		switch (tag) {
+		case 'e':
+			in.skipNBytes(4);
+			break;
+		case '@':
+			skipAnnotation();
+			break;
+		case '[':
+			int count = in.readUnsignedShort();
+			for (int i = 0; i < count; i++) {
+				skipElementValue();
+			}
+			break;
+		default: // const_value_index or class_info_index
+			in.skipNBytes(2);
+		}
+	}
+
+	private String className(int index) {
+		if (index == 0) {
+			return null;
+		}
+		return utf8[classNameIndex[index]].replace('/', '.');
+	}
+
+}
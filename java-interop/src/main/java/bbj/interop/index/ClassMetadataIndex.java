@@ -0,0 +1,602 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.index;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import bbj.interop.data.ClassInfo;
+import bbj.interop.trace.Trace;
+
+/**
+ * Persistent cache of computed {@link ClassInfo}s, grouped by the jar they
+ * were loaded from. Entries only hold the members a class declares itself,
+ * inherited members come from the entries of the supertypes, see
+ * {@link InheritedMembers}.
+ * <p>
+ * Every jar gets its own file in the index directory, tagged with the
+ * {@link JarFingerprint} of the jar and the metadata backend that computed
+ * the entries, as reflection and class file parsing may differ in details
+ * such as parameter names. When a jar changes, its stored entries
+ * are dropped on first access and only the classes of that jar have to be
+ * reflected again. Modified entries are written back in the background.
+ * <p>
+ * In mapped mode the entries of a jar are stored in a binary file that is
+ * memory-mapped, see {@link MappedClassInfos}, instead of a JSON file that is
+ * read into the heap. Only entries computed since the last flush are held on
+ * the heap; stored entries are decoded on every access.
+ * <p>
+ * The whole index can be exported to a snapshot file and imported into
+ * another installation with the same jars, see {@link #exportSnapshot}.
+ */
+public class ClassMetadataIndex {
+
+	/**
+	 * Bump whenever the stored format or the content of the DTOs changes.
+	 */
+	static final int FORMAT_VERSION = 3;
+
+	/**
+	 * Bump whenever the layout of snapshot files changes.
+	 */
+	static final int SNAPSHOT_VERSION = 1;
+
+	private static final long FLUSH_DELAY_MS = 2000;
+
+	private final Path indexDir;
+	private final boolean mapped;
+	private final String backend;
+	private final Gson gson = new Gson();
+	private final Map<Path, JarMetadata> jars = new ConcurrentHashMap<>();
+	private final AtomicBoolean flushScheduled = new AtomicBoolean();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		var thread = new Thread(runnable, "bbj-interop-index-flush");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * @param indexDir directory of the stored index, or {@code null} to keep
+	 *                 the metadata in memory only
+	 * @param backend  id of the backend computing the metadata, entries of
+	 *                 other backends are not used
+	 */
+	public ClassMetadataIndex(Path indexDir, String backend) {
+		this(indexDir, false, backend);
+	}
+
+	/**
+	 * @param indexDir directory of the stored index, or {@code null} to keep
+	 *                 the metadata in memory only
+	 * @param mapped   whether to keep the stored metadata in memory-mapped
+	 *                 files instead of the heap, requires an index directory
+	 * @param backend  id of the backend computing the metadata, entries of
+	 *                 other backends are not used
+	 */
+	public ClassMetadataIndex(Path indexDir, boolean mapped, String backend) {
+		this.indexDir = indexDir;
+		this.mapped = mapped && indexDir != null;
+		this.backend = backend;
+		if (mapped && indexDir == null) {
+			Trace.warn("Memory-mapped class index needs an index directory, keeping the metadata on the heap");
+		}
+	}
+
+	/**
+	 * Returns the jar (or JDK runtime image) a class resource was loaded from,
+	 * or {@code null} if the location is not cacheable (e.g. a class folder).
+	 */
+	public static Path originOf(URL classResource) {
+		if (classResource == null) {
+			return null;
+		}
+		try {
+			switch (classResource.getProtocol()) {
+			case "jar":
+				var path = classResource.getPath();
+				var separator = path.indexOf("!/");
+				if (separator < 0) {
+					return null;
+				}
+				return Path.of(new URL(path.substring(0, separator)).toURI());
+			case "jrt":
+				return Path.of(System.getProperty("java.home"), "lib", "modules");
+			default:
+				return null;
+			}
+		} catch (IOException | URISyntaxException | IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	public ClassInfo get(Path jar, String className) {
+		var metadata = open(jar);
+		var classInfo = metadata != null ? metadata.get(className) : null;
+		(classInfo != null ? hits : misses).increment();
+		return classInfo;
+	}
+
+	public void put(Path jar, String className, ClassInfo classInfo) {
+		var metadata = open(jar);
+		if (metadata != null) {
+			metadata.classes.put(className, classInfo);
+			metadata.dirty.set(true);
+			scheduleFlush();
+		}
+	}
+
+	/**
+	 * Drops the in-memory metadata of a jar that changed on disk. The stored
+	 * index is checked against the new fingerprint when the jar is used again.
+	 */
+	public void invalidate(Path jar) {
+		var metadata = jars.remove(jar.toAbsolutePath().normalize());
+		if (metadata != null) {
+			metadata.unmap();
+		}
+	}
+
+	/**
+	 * @return {@code null} if the metadata is kept in memory only
+	 */
+	public Path getIndexDir() {
+		return indexDir;
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Number of jars with loaded metadata.
+	 */
+	public int getJarCount() {
+		return jars.size();
+	}
+
+	/**
+	 * Number of class infos available without reflection, over all jars.
+	 */
+	public int getClassCount() {
+		return jars.values().stream().mapToInt(JarMetadata::size).sum();
+	}
+
+	/**
+	 * Writes all modified jar entries to the index directory. Runs on the
+	 * flush thread and on the shutdown hook, synchronized so that they never
+	 * write the files of a jar at the same time.
+	 */
+	public synchronized void flush() {
+		flushScheduled.set(false);
+		if (indexDir == null) {
+			return;
+		}
+		jars.values().forEach(metadata -> {
+			// entries added from now on are written by the next flush
+			if (!metadata.dirty.compareAndSet(true, false)) {
+				return;
+			}
+			try {
+				Files.createDirectories(indexDir);
+				var jar = Path.of(metadata.fingerprint.path);
+				if (mapped) {
+					writeMapped(jar, metadata);
+					return;
+				}
+				var file = indexFile(jar);
+				// unique, other processes may share the index directory
+				var tmp = Files.createTempFile(indexDir, file.getFileName().toString(), ".tmp");
+				try {
+					try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+						gson.toJson(metadata, writer);
+					}
+					Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				} finally {
+					Files.deleteIfExists(tmp);
+				}
+			} catch (IOException e) {
+				metadata.dirty.set(true);
+				Trace.error(e, "Failed to write class index of %s", metadata.fingerprint.path);
+			}
+		});
+	}
+
+	/**
+	 * Writes the stored and the new entries of a jar to the next mapped file
+	 * and maps it. A mapped file is never overwritten: the entries go to a file
+	 * with a sequence number after all existing ones, the previous mapping is
+	 * released once its running reads are done, and older files are deleted.
+	 * Files that are still mapped, on Windows also by other processes, are
+	 * deleted by a later flush.
+	 */
+	private void writeMapped(Path jar, JarMetadata metadata) throws IOException {
+		var added = Map.copyOf(metadata.classes);
+		var classes = new HashMap<String, ClassInfo>();
+		metadata.forEachStored(classes::put);
+		classes.putAll(added);
+		var existing = mappedFiles(jar);
+		int sequence = Math.max(metadata.mappedSequence, existing.isEmpty() ? 0 : existing.lastKey()) + 1;
+		var file = mappedFile(jar, sequence);
+		var tmp = Files.createTempFile(indexDir, file.getFileName().toString(), ".tmp");
+		try {
+			MappedClassInfos.write(tmp, FORMAT_VERSION, metadata.fingerprint, classes);
+			Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+		var previous = metadata.mappedClasses;
+		metadata.mappedClasses = MappedClassInfos.open(file, FORMAT_VERSION);
+		metadata.mappedSequence = sequence;
+		added.forEach(metadata.classes::remove);
+		if (previous != null) {
+			previous.close();
+		}
+		for (var older : mappedFiles(jar).entrySet()) {
+			if (older.getKey() < sequence) {
+				try {
+					Files.deleteIfExists(older.getValue());
+				} catch (IOException e) {
+					// still mapped, deleted after the next flush
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes the metadata of all jars to a gzipped snapshot file, to be
+	 * imported with {@link #importSnapshot}. Jars are recorded relative to the
+	 * directory of the snapshot where possible, so the snapshot stays valid
+	 * when it is shipped along with them.
+	 *
+	 * @return the number of exported classes
+	 */
+	public int exportSnapshot(Path file) throws IOException {
+		var base = file.toAbsolutePath().normalize().getParent();
+		var snapshot = new IndexSnapshot();
+		snapshot.version = SNAPSHOT_VERSION;
+		snapshot.formatVersion = FORMAT_VERSION;
+		snapshot.backend = backend;
+		snapshot.javaVersion = Runtime.version().toString();
+		snapshot.jars = new ArrayList<>();
+		int classCount = 0;
+		for (var entry : new TreeMap<>(jars).entrySet()) {
+			var metadata = entry.getValue();
+			var classes = new TreeMap<String, ClassInfo>();
+			metadata.forEachStored(classes::put);
+			classes.putAll(metadata.classes);
+			if (classes.isEmpty()) {
+				continue;
+			}
+			var jar = new SnapshotJar();
+			jar.location = relativize(base, entry.getKey());
+			jar.size = metadata.fingerprint.size;
+			jar.hash = metadata.fingerprint.hash != null ? metadata.fingerprint.hash
+					: JarFingerprint.contentHash(entry.getKey());
+			jar.classes = classes;
+			snapshot.jars.add(jar);
+			classCount += classes.size();
+		}
+		Files.createDirectories(base);
+		var tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(tmp)),
+				StandardCharsets.UTF_8)) {
+			gson.toJson(snapshot, writer);
+		}
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		return classCount;
+	}
+
+	private static String relativize(Path base, Path jar) {
+		try {
+			return base.relativize(jar).toString().replace(jar.getFileSystem().getSeparator(), "/");
+		} catch (IllegalArgumentException e) {
+			// on another drive
+			return jar.toString();
+		}
+	}
+
+	/**
+	 * Adds the class infos of a snapshot written by {@link #exportSnapshot}
+	 * for every jar that exists here with the same content, so that its
+	 * classes never have to be reflected. Classes already in the index are
+	 * kept. The imported entries are stored in the index directory as well.
+	 *
+	 * @return the number of imported classes
+	 */
+	public int importSnapshot(Path file) {
+		IndexSnapshot snapshot;
+		try (Reader reader = new InputStreamReader(new GZIPInputStream(Files.newInputStream(file)),
+				StandardCharsets.UTF_8)) {
+			snapshot = gson.fromJson(reader, IndexSnapshot.class);
+		} catch (IOException | JsonParseException e) {
+			Trace.warn("Ignoring unreadable class index snapshot %s: %s", file, e.getMessage());
+			return 0;
+		}
+		if (snapshot == null || snapshot.jars == null || snapshot.version != SNAPSHOT_VERSION
+				|| snapshot.formatVersion != FORMAT_VERSION) {
+			Trace.info("Ignoring class index snapshot %s of another version", file);
+			return 0;
+		}
+		if (!backend.equals(snapshot.backend)) {
+			Trace.info("Ignoring class index snapshot %s of the %s backend", file, snapshot.backend);
+			return 0;
+		}
+		var base = file.toAbsolutePath().normalize().getParent();
+		int imported = 0;
+		int jarCount = 0;
+		for (var jar : snapshot.jars) {
+			if (jar.location == null || jar.hash == null || jar.classes == null) {
+				continue;
+			}
+			var path = base.resolve(jar.location).normalize();
+			try {
+				if (!Files.isRegularFile(path) || Files.size(path) != jar.size
+						|| !jar.hash.equals(JarFingerprint.contentHash(path))) {
+					Trace.debug("Snapshot entry of %s does not match the jar", path);
+					continue;
+				}
+			} catch (IOException e) {
+				continue;
+			}
+			var metadata = open(path);
+			if (metadata == null) {
+				continue;
+			}
+			int added = 0;
+			for (var entry : jar.classes.entrySet()) {
+				if (metadata.get(entry.getKey()) == null) {
+					metadata.classes.put(entry.getKey(), TypeNames.intern(entry.getValue()));
+					added++;
+				}
+			}
+			if (added > 0) {
+				metadata.dirty.set(true);
+				scheduleFlush();
+			}
+			imported += added;
+			jarCount++;
+		}
+		Trace.info("Imported %d classes of %d jars from snapshot %s", imported, jarCount, file);
+		return imported;
+	}
+
+	private void scheduleFlush() {
+		if (indexDir != null && flushScheduled.compareAndSet(false, true)) {
+			flusher.schedule(this::flush, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	JarMetadata open(Path jar) {
+		var key = jar.toAbsolutePath().normalize();
+		return jars.computeIfAbsent(key, this::load);
+	}
+
+	private JarMetadata load(Path jar) {
+		try {
+			var stored = mapped ? readMapped(jar) : read(jar);
+			if (stored != null && stored.version == FORMAT_VERSION && backend.equals(stored.backend)
+					&& stored.fingerprint.matches(jar)) {
+				if (stored.mappedClasses == null) {
+					stored.classes = new ConcurrentHashMap<>(stored.classes);
+					stored.classes.values().forEach(TypeNames::intern);
+				}
+				return stored;
+			}
+			if (stored != null) {
+				stored.unmap();
+			}
+			var metadata = new JarMetadata();
+			metadata.version = FORMAT_VERSION;
+			metadata.backend = backend;
+			metadata.fingerprint = JarFingerprint.of(jar);
+			metadata.classes = new ConcurrentHashMap<>();
+			if (stored != null) {
+				metadata.mappedSequence = stored.mappedSequence;
+				Trace.info("Class index outdated for %s, reloading its classes.", jar);
+			}
+			return metadata;
+		} catch (IOException e) {
+			Trace.error(e, "Failed to fingerprint %s", jar);
+			return null;
+		}
+	}
+
+	private JarMetadata read(Path jar) {
+		if (indexDir == null) {
+			return null;
+		}
+		var file = indexFile(jar);
+		if (!Files.isRegularFile(file)) {
+			return null;
+		}
+		try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			var stored = gson.fromJson(reader, JarMetadata.class);
+			return stored != null && stored.fingerprint != null && stored.classes != null ? stored : null;
+		} catch (IOException | JsonParseException e) {
+			Trace.warn("Ignoring unreadable class index %s: %s", file, e.getMessage());
+			return null;
+		}
+	}
+
+	private JarMetadata readMapped(Path jar) {
+		var files = mappedFiles(jar);
+		if (files.isEmpty()) {
+			return null;
+		}
+		var latest = files.lastEntry();
+		try {
+			var mappedClasses = MappedClassInfos.open(latest.getValue(), FORMAT_VERSION);
+			var stored = new JarMetadata();
+			stored.version = mappedClasses != null ? FORMAT_VERSION : -1;
+			// mapped files are named by backend
+			stored.backend = backend;
+			stored.fingerprint = mappedClasses != null ? mappedClasses.getFingerprint() : new JarFingerprint();
+			stored.classes = new ConcurrentHashMap<>();
+			stored.mappedClasses = mappedClasses;
+			stored.mappedSequence = latest.getKey();
+			return stored;
+		} catch (IOException | RuntimeException e) {
+			Trace.warn("Ignoring unreadable class index %s: %s", latest.getValue(), e.getMessage());
+			return null;
+		}
+	}
+
+	private Path indexFile(Path jar) {
+		return indexDir.resolve(baseName(jar) + ".json");
+	}
+
+	private Path mappedFile(Path jar, int sequence) {
+		return indexDir.resolve(baseName(jar) + "." + sequence + ".bin");
+	}
+
+	/**
+	 * The mapped files of a jar by sequence number.
+	 */
+	private TreeMap<Integer, Path> mappedFiles(Path jar) {
+		var files = new TreeMap<Integer, Path>();
+		var prefix = baseName(jar) + ".";
+		if (!Files.isDirectory(indexDir)) {
+			return files;
+		}
+		try (var stream = Files.newDirectoryStream(indexDir,
+				file -> file.getFileName().toString().startsWith(prefix) && file.toString().endsWith(".bin"))) {
+			for (var file : stream) {
+				var name = file.getFileName().toString();
+				try {
+					files.put(Integer.parseInt(name.substring(prefix.length(), name.length() - ".bin".length())), file);
+				} catch (NumberFormatException e) {
+					// not written by this index
+				}
+			}
+		} catch (IOException e) {
+			Trace.warn("Failed to list class index files of %s: %s", jar, e.getMessage());
+		}
+		return files;
+	}
+
+	/**
+	 * Backends have separate files, so switching between them does not
+	 * discard the entries of the other one.
+	 */
+	private String baseName(Path jar) {
+		var name = jar.getFileName().toString();
+		var key = Hashing.murmur3_128().hashUnencodedChars(jar.toString()).toString();
+		return name + "-" + backend + "-" + key;
+	}
+
+	static class IndexSnapshot {
+		int version;
+		int formatVersion;
+		/**
+		 * Id of the backend that computed the metadata.
+		 */
+		String backend;
+		/**
+		 * Of the exporting JVM, for information only.
+		 */
+		String javaVersion;
+		List<SnapshotJar> jars;
+	}
+
+	static class SnapshotJar {
+		/**
+		 * Path of the jar, relative to the snapshot file if possible.
+		 */
+		String location;
+		long size;
+		String hash;
+		Map<String, ClassInfo> classes;
+	}
+
+	static class JarMetadata {
+		int version;
+		String backend;
+		JarFingerprint fingerprint;
+		/**
+		 * All entries in heap mode; in mapped mode only those computed since
+		 * the last flush.
+		 */
+		Map<String, ClassInfo> classes;
+		transient volatile MappedClassInfos mappedClasses;
+		transient int mappedSequence;
+		transient final AtomicBoolean dirty = new AtomicBoolean();
+
+		ClassInfo get(String className) {
+			var classInfo = classes.get(className);
+			var stored = mappedClasses;
+			while (classInfo == null && stored != null) {
+				classInfo = stored.get(className);
+				var current = mappedClasses;
+				if (current == stored) {
+					break;
+				}
+				// swapped by a flush, the entry may have moved to the new file
+				stored = current;
+			}
+			return classInfo;
+		}
+
+		/**
+		 * Passes the entries of the current mapped file, if any, to the
+		 * consumer.
+		 */
+		void forEachStored(BiConsumer<String, ClassInfo> consumer) {
+			var stored = mappedClasses;
+			while (stored != null && !stored.forEach(consumer)) {
+				// closed by a flush that mapped a new file
+				var current = mappedClasses;
+				stored = current != stored ? current : null;
+			}
+		}
+
+		void unmap() {
+			var stored = mappedClasses;
+			mappedClasses = null;
+			if (stored != null) {
+				stored.close();
+			}
+		}
+
+		int size() {
+			var stored = mappedClasses;
+			return classes.size() + (stored != null ? stored.size() : 0);
+		}
+	}
+
+}
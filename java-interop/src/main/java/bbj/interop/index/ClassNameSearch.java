@@ -0,0 +1,234 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Prefix and camel-hump search over the simple names of a
+ * {@link ClassNameTable}.
+ * <p>
+ * Simple names are kept in a case-insensitively sorted array. Every match has
+ * to start with the first character of the query, so a query only looks at
+ * the contiguous range of names with that initial, and the best matches are
+ * kept in a heap bounded by the requested limit. The camel humps of the names
+ * are split once, when the search is built, so a query does not allocate per
+ * candidate.
+ */
+public class ClassNameSearch {
+
+	private static final int EXACT = 1000;
+	private static final int EXACT_IGNORE_CASE = 900;
+	private static final int PREFIX = 800;
+	private static final int PREFIX_IGNORE_CASE = 700;
+	private static final int CAMEL_HUMPS = 500;
+
+	private final String[] classNames;
+	private final String[] simpleNames;
+	/**
+	 * Indices into {@link #classNames}, ordered by lower case simple name.
+	 */
+	private final int[] order;
+	private final String[] sortedKeys;
+	/**
+	 * Start offsets of the camel humps of all simple names, one run per name.
+	 */
+	private final int[] humpOffsets;
+	/**
+	 * Index of the first hump of each name in {@link #humpOffsets}, plus the
+	 * end of the last run.
+	 */
+	private final int[] firstHump;
+
+	ClassNameSearch(String[] classNames) {
+		this.classNames = classNames;
+		this.simpleNames = new String[classNames.length];
+		this.firstHump = new int[classNames.length + 1];
+		var keys = new String[classNames.length];
+		var offsets = new int[Math.max(16, classNames.length * 3)];
+		int humpCount = 0;
+		for (int i = 0; i < classNames.length; i++) {
+			simpleNames[i] = classNames[i].substring(classNames[i].lastIndexOf('.') + 1);
+			keys[i] = simpleNames[i].toLowerCase();
+			firstHump[i] = humpCount;
+			for (int offset = 0; offset < simpleNames[i].length(); offset++) {
+				if (offset == 0 || isHumpStart(simpleNames[i], offset)) {
+					if (humpCount == offsets.length) {
+						offsets = Arrays.copyOf(offsets, offsets.length * 2);
+					}
+					offsets[humpCount++] = offset;
+				}
+			}
+		}
+		firstHump[classNames.length] = humpCount;
+		this.humpOffsets = Arrays.copyOf(offsets, humpCount);
+		Integer[] boxed = new Integer[classNames.length];
+		Arrays.setAll(boxed, i -> i);
+		Arrays.sort(boxed, Comparator.comparing((Integer i) -> keys[i]).thenComparing(i -> i));
+		this.order = Arrays.stream(boxed).mapToInt(Integer::intValue).toArray();
+		this.sortedKeys = Arrays.stream(order).mapToObj(i -> keys[i]).toArray(String[]::new);
+	}
+
+	/**
+	 * Returns the fully qualified names of the best {@code limit} matches,
+	 * best first.
+	 */
+	public List<String> search(String query, int limit) {
+		if (query == null || query.isEmpty() || limit <= 0) {
+			return List.of();
+		}
+		var initial = query.substring(0, 1).toLowerCase();
+		int from = lowerBound(initial);
+		int to = lowerBound(initial + Character.MAX_VALUE);
+		var queryHumps = humps(query);
+		var lowerQuery = query.toLowerCase();
+
+		// min-heap on the score, the root is the worst match kept so far
+		var best = new PriorityQueue<Match>(limit + 1, Match.ORDER.reversed());
+		for (int i = from; i < to; i++) {
+			int index = order[i];
+			int score = score(index, sortedKeys[i], query, lowerQuery, queryHumps);
+			if (score <= 0) {
+				continue;
+			}
+			var match = new Match(score, classNames[index]);
+			if (best.size() < limit) {
+				best.add(match);
+			} else if (Match.ORDER.compare(match, best.peek()) < 0) {
+				best.poll();
+				best.add(match);
+			}
+		}
+		var result = new ArrayList<Match>(best);
+		result.sort(Match.ORDER);
+		var names = new ArrayList<String>(result.size());
+		result.forEach(match -> names.add(match.className));
+		return names;
+	}
+
+	private int lowerBound(String key) {
+		int low = 0;
+		int high = sortedKeys.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (sortedKeys[mid].compareTo(key) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Scores how well {@code simpleName} matches the query, 0 for no match.
+	 * Shorter names win among matches of the same kind.
+	 */
+	private int score(int index, String lowerName, String query, String lowerQuery, List<String> queryHumps) {
+		var simpleName = simpleNames[index];
+		int kind;
+		if (simpleName.equals(query)) {
+			kind = EXACT;
+		} else if (lowerName.equals(lowerQuery)) {
+			kind = EXACT_IGNORE_CASE;
+		} else if (simpleName.startsWith(query)) {
+			kind = PREFIX;
+		} else if (lowerName.startsWith(lowerQuery)) {
+			kind = PREFIX_IGNORE_CASE;
+		} else {
+			int skipped = matchHumps(index, queryHumps);
+			if (skipped < 0) {
+				return 0;
+			}
+			kind = CAMEL_HUMPS - 10 * Math.min(skipped, 20);
+		}
+		return kind * 100 - Math.min(simpleName.length(), 99);
+	}
+
+	/**
+	 * Matches each query hump against the start of a name hump, in order,
+	 * allowing name humps to be skipped. The first humps must match.
+	 *
+	 * @return the number of skipped name humps, or -1 if there is no match
+	 */
+	private int matchHumps(int index, List<String> queryHumps) {
+		int first = firstHump[index];
+		int end = firstHump[index + 1];
+		if (queryHumps.size() < 2 || queryHumps.size() > end - first) {
+			return -1;
+		}
+		var simpleName = simpleNames[index];
+		int skipped = 0;
+		int hump = first;
+		for (int q = 0; q < queryHumps.size(); q++) {
+			var queryHump = queryHumps.get(q);
+			while (hump < end && !humpStartsWith(simpleName, hump, end, queryHump)) {
+				if (q == 0) {
+					return -1;
+				}
+				hump++;
+				skipped++;
+			}
+			if (hump == end) {
+				return -1;
+			}
+			hump++;
+		}
+		return skipped;
+	}
+
+	/**
+	 * Whether the hump of a name starts with the query hump, ignoring case.
+	 * The initials are compared first, they rule out most humps.
+	 */
+	private boolean humpStartsWith(String simpleName, int hump, int end, String queryHump) {
+		int offset = humpOffsets[hump];
+		int length = (hump + 1 < end ? humpOffsets[hump + 1] : simpleName.length()) - offset;
+		return queryHump.length() <= length
+				&& Character.toLowerCase(simpleName.charAt(offset)) == Character.toLowerCase(queryHump.charAt(0))
+				&& simpleName.regionMatches(true, offset, queryHump, 0, queryHump.length());
+	}
+
+	/**
+	 * Splits a name in front of every upper case letter and digit run:
+	 * {@code BBjWindow} becomes {@code B, Bj, Window}.
+	 */
+	static List<String> humps(String name) {
+		var humps = new ArrayList<String>();
+		int start = 0;
+		for (int i = 1; i < name.length(); i++) {
+			if (isHumpStart(name, i)) {
+				humps.add(name.substring(start, i));
+				start = i;
+			}
+		}
+		humps.add(name.substring(start));
+		return humps;
+	}
+
+	private static boolean isHumpStart(String name, int i) {
+		char c = name.charAt(i);
+		return Character.isUpperCase(c) || (Character.isDigit(c) && !Character.isDigit(name.charAt(i - 1)));
+	}
+
+	private static class Match {
+		static final Comparator<Match> ORDER = Comparator.comparingInt((Match m) -> -m.score)
+				.thenComparing(m -> m.className);
+
+		final int score;
+		final String className;
+
+		Match(int score, String className) {
+			this.score = score;
+			this.className = className;
+		}
+	}
+
+}
@@ -0,0 +1,54 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.index;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Sorted, deduplicated table of fully qualified class names. Stored as one
+ * array so that large classpaths do not keep a collection node per name.
+ */
+public class ClassNameTable {
+
+	private final String[] names;
+	private final ClassNameSearch search;
+
+	private ClassNameTable(String[] names) {
+		this.names = names;
+		this.search = new ClassNameSearch(names);
+	}
+
+	public static ClassNameTable of(Collection<? extends Collection<String>> classNames) {
+		var names = classNames.stream().flatMap(Collection::stream).sorted().distinct().toArray(String[]::new);
+		return new ClassNameTable(names);
+	}
+
+	public int size() {
+		return names.length;
+	}
+
+	/**
+	 * Returns up to {@code limit} names starting at {@code offset}, or all
+	 * remaining names if {@code limit} is not positive.
+	 */
+	public List<String> slice(int offset, int limit) {
+		int from = Math.min(Math.max(0, offset), names.length);
+		int to = limit > 0 ? (int) Math.min((long) from + limit, names.length) : names.length;
+		return Arrays.asList(names).subList(from, to);
+	}
+
+	/**
+	 * Prefix and camel-hump search on the simple names, see
+	 * {@link ClassNameSearch}. The search index, including the camel humps of
+	 * every name, is built with the table.
+	 */
+	public List<String> search(String query, int limit) {
+		return search.search(query, limit);
+	}
+
+}
@@ -0,0 +1,299 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.index;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Collectors;
+
+import org.eclipse.lsp4j.jsonrpc.CancelChecker;
+
+import bbj.interop.trace.Trace;
+import bbj.interop.trace.TraceLevel;
+
+/**
+ * Package to class index of the jars and class directories added to the
+ * interop class loader.
+ * <p>
+ * Entries are indexed when they are added and merged into the existing index.
+ * Jars already scanned for another classpath are taken from the shared
+ * {@link JarIndexCache} unless they changed on disk. Jars of one batch are opened and scanned concurrently on a
+ * bounded fork-join pool. The merged state is published as an immutable
+ * snapshot, so readers never observe a partially merged classpath.
+ */
+public class ClassPathIndex {
+
+	private final Map<Path, JarIndex> jars = new LinkedHashMap<>();
+	private final int parallelism;
+	private final JarIndexCache cache;
+	private volatile Snapshot snapshot = new Snapshot(Collections.emptyMap(), Collections.emptyMap(),
+			Collections.emptySet(), 0, 0);
+
+	/**
+	 * @param parallelism number of jars scanned concurrently, {@code 1} scans
+	 *                    on the calling thread
+	 * @param cache       jars scanned before, possibly for other classpaths
+	 */
+	public ClassPathIndex(int parallelism, JarIndexCache cache) {
+		this.parallelism = Math.max(1, parallelism);
+		this.cache = cache;
+	}
+
+	/**
+	 * Scans the entries that are not indexed yet, including jars referenced
+	 * by their manifest {@code Class-Path}, and merges them into the index.
+	 * The cancel checker is consulted before every jar; when the operation is
+	 * canceled, none of the entries scanned by this call are added, not even
+	 * those of earlier manifest batches, so the next call scans them again.
+	 *
+	 * @return the newly indexed entries
+	 */
+	public synchronized List<JarIndex> addAll(Collection<Path> entries, CancelChecker cancelChecker) {
+		var span = Trace.span(TraceLevel.INFO);
+		var scanned = new LinkedHashMap<Path, JarIndex>();
+		var pending = new LinkedHashSet<Path>();
+		entries.forEach(entry -> pending.add(entry.toAbsolutePath().normalize()));
+		var pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+		try {
+			while (!pending.isEmpty()) {
+				var batch = pending.stream()
+						.filter(entry -> !jars.containsKey(entry) && !scanned.containsKey(entry) && Files.exists(entry))
+						.collect(Collectors.toList());
+				pending.clear();
+				for (var jarIndex : scan(batch, pool, cancelChecker)) {
+					scanned.put(jarIndex.getPath(), jarIndex);
+					jarIndex.getManifestClassPath().forEach(entry -> pending.add(entry.toAbsolutePath().normalize()));
+				}
+			}
+		} finally {
+			if (pool != null) {
+				pool.shutdownNow();
+			}
+		}
+		var added = new ArrayList<>(scanned.values());
+		if (!added.isEmpty()) {
+			// publish all new entries at once
+			jars.putAll(scanned);
+			snapshot = new Snapshot(merge(snapshot.packages, added), mergeSubtypes(snapshot.directSubtypes, added),
+					mergeNonPublicTypes(snapshot.nonPublicTypes, added), snapshot.generation + 1, jars.size());
+			span.message("Indexed %d classpath entries", added.size());
+			span.close();
+		}
+		return added;
+	}
+
+	/**
+	 * Scans a batch of entries, concurrently if a pool is given. Results are
+	 * returned in the order of the batch, failed entries are left out.
+	 */
+	private List<JarIndex> scan(List<Path> batch, ForkJoinPool pool, CancelChecker cancelChecker) {
+		if (pool == null || batch.size() < 2) {
+			return batch.stream().map(entry -> scan(entry, cancelChecker)).filter(Objects::nonNull)
+					.collect(Collectors.toList());
+		}
+		var tasks = batch.stream().map(entry -> pool.submit(() -> scan(entry, cancelChecker)))
+				.collect(Collectors.toList());
+		return tasks.stream().map(ForkJoinTask::join).filter(Objects::nonNull).collect(Collectors.toList());
+	}
+
+	private JarIndex scan(Path entry, CancelChecker cancelChecker) {
+		cancelChecker.checkCanceled();
+		try {
+			return cache.get(entry);
+		} catch (IOException e) {
+			Trace.warn("Failed to index %s: %s", entry, e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Creates the next snapshot. Only the packages touched by the new entries
+	 * are copied, all others are shared with the previous snapshot.
+	 */
+	private static Map<String, List<String>> merge(Map<String, List<String>> current, List<JarIndex> added) {
+		var touched = new HashMap<String, TreeSet<String>>();
+		for (var jarIndex : added) {
+			for (var className : jarIndex.getTopLevelClassNames()) {
+				var packageName = packageName(className);
+				touched.computeIfAbsent(packageName, name -> {
+					var existing = current.get(name);
+					return existing != null ? new TreeSet<>(existing) : new TreeSet<>();
+				}).add(className);
+			}
+		}
+		var next = new HashMap<>(current);
+		touched.forEach((name, classes) -> next.put(name, List.copyOf(classes)));
+		return Collections.unmodifiableMap(next);
+	}
+
+	private static Map<String, List<String>> mergeSubtypes(Map<String, List<String>> current, List<JarIndex> added) {
+		var touched = new HashMap<String, TreeSet<String>>();
+		for (var jarIndex : added) {
+			jarIndex.getDirectSubtypes().forEach((supertype, subtypes) -> touched.computeIfAbsent(supertype, name -> {
+				var existing = current.get(name);
+				return existing != null ? new TreeSet<>(existing) : new TreeSet<>();
+			}).addAll(subtypes));
+		}
+		var next = new HashMap<>(current);
+		touched.forEach((name, subtypes) -> next.put(name, List.copyOf(subtypes)));
+		return Collections.unmodifiableMap(next);
+	}
+
+	private static Set<String> mergeNonPublicTypes(Set<String> current, List<JarIndex> added) {
+		var next = new HashSet<>(current);
+		added.forEach(jarIndex -> next.addAll(jarIndex.getNonPublicTypes()));
+		return Collections.unmodifiableSet(next);
+	}
+
+	static String packageName(String className) {
+		int lastDot = className.lastIndexOf('.');
+		return lastDot < 0 ? "" : className.substring(0, lastDot);
+	}
+
+	/**
+	 * All indexed jars and class directories, including those referenced by
+	 * manifests.
+	 */
+	public synchronized List<Path> getEntries() {
+		return List.copyOf(jars.keySet());
+	}
+
+	/**
+	 * The indexes of all jars and class directories.
+	 */
+	public synchronized List<JarIndex> getJarIndexes() {
+		return List.copyOf(jars.values());
+	}
+
+	/**
+	 * The index of one jar or class directory, {@code null} if it is not part
+	 * of this index.
+	 */
+	public synchronized JarIndex getEntry(Path entry) {
+		return jars.get(entry);
+	}
+
+	/**
+	 * Packages whose classes may differ between this index and another one:
+	 * the packages of every entry that is only part of one of them or that
+	 * was scanned separately for each, because it changed in between.
+	 */
+	public Set<String> getChangedPackages(ClassPathIndex other) {
+		Map<Path, JarIndex> mine;
+		Map<Path, JarIndex> theirs;
+		synchronized (this) {
+			mine = new HashMap<>(jars);
+		}
+		synchronized (other) {
+			theirs = new HashMap<>(other.jars);
+		}
+		var entries = new HashSet<>(mine.keySet());
+		entries.addAll(theirs.keySet());
+		var changed = new TreeSet<String>();
+		for (var entry : entries) {
+			var before = mine.get(entry);
+			var after = theirs.get(entry);
+			if (before != after) {
+				addPackages(changed, before);
+				addPackages(changed, after);
+			}
+		}
+		return changed;
+	}
+
+	private static void addPackages(Set<String> packages, JarIndex jarIndex) {
+		if (jarIndex != null) {
+			jarIndex.getTopLevelClassNames().forEach(className -> packages.add(packageName(className)));
+		}
+	}
+
+	/**
+	 * Incremented whenever entries are added.
+	 */
+	public int getGeneration() {
+		return snapshot.generation;
+	}
+
+	/**
+	 * Fully qualified names of the top-level classes by package name.
+	 */
+	public Map<String, List<String>> getPackages() {
+		return snapshot.packages;
+	}
+
+	/**
+	 * Fully qualified names of the top-level classes of a package, sorted.
+	 */
+	public List<String> getTopLevelClasses(String packageName) {
+		return snapshot.packages.getOrDefault(packageName, Collections.emptyList());
+	}
+
+	/**
+	 * Binary names of the classes that directly extend or implement the given
+	 * type, sorted, including classes that are not public, see
+	 * {@link #isNonPublic}. Subclasses of {@code java.lang.Object} are not
+	 * indexed.
+	 */
+	public List<String> getDirectSubtypes(String typeName) {
+		return snapshot.directSubtypes.getOrDefault(typeName, Collections.emptyList());
+	}
+
+	/**
+	 * Whether an indexed class is not public. Such classes are only indexed as
+	 * the link between their supertypes and their public subtypes.
+	 */
+	public boolean isNonPublic(String className) {
+		return snapshot.nonPublicTypes.contains(className);
+	}
+
+	public int getJarCount() {
+		return snapshot.jarCount;
+	}
+
+	public int getPackageCount() {
+		return snapshot.packages.size();
+	}
+
+	/**
+	 * Number of top-level classes.
+	 */
+	public int getClassCount() {
+		return snapshot.packages.values().stream().mapToInt(List::size).sum();
+	}
+
+	private static class Snapshot {
+		final Map<String, List<String>> packages;
+		final Map<String, List<String>> directSubtypes;
+		final Set<String> nonPublicTypes;
+		final int generation;
+		final int jarCount;
+
+		Snapshot(Map<String, List<String>> packages, Map<String, List<String>> directSubtypes,
+				Set<String> nonPublicTypes, int generation, int jarCount) {
+			this.packages = packages;
+			this.directSubtypes = directSubtypes;
+			this.nonPublicTypes = nonPublicTypes;
+			this.generation = generation;
+			this.jarCount = jarCount;
+		}
+	}
+
+}
@@ -0,0 +1,126 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.index;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import bbj.interop.data.ClassInfo;
+import bbj.interop.data.FieldInfo;
+import bbj.interop.data.MethodInfo;
+
+/**
+ * Adds the inherited public members to a class info that only holds the
+ * members the class declares itself.
+ * <p>
+ * Only declared members are cached, with the jar that defines the class, so
+ * an entry stays valid when the jar of a supertype changes or the class is
+ * loaded on a classpath with other supertypes. The inherited members are
+ * collected from the declared members of the supertypes whenever a class is
+ * requested with them. The result mirrors {@code Class.getFields()} and
+ * {@code getMethods()}; supertypes that cannot be resolved are skipped.
+ */
+public final class InheritedMembers {
+
+	private static final String OBJECT = "java.lang.Object";
+
+	private InheritedMembers() {
+	}
+
+	/**
+	 * @param declared   class info with declared members only
+	 * @param supertypes resolves the declared members of a supertype by its
+	 *                   canonical name, an info with an error if there is no
+	 *                   such type
+	 * @return a new class info, the given ones are left untouched
+	 */
+	public static ClassInfo flatten(ClassInfo declared, Function<String, ClassInfo> supertypes) {
+		var classInfo = new ClassInfo();
+		classInfo.name = declared.name;
+		classInfo.packageName = declared.packageName;
+		classInfo.simpleName = declared.simpleName;
+		classInfo.isDeprecated = declared.isDeprecated;
+		classInfo.isInterface = declared.isInterface;
+		classInfo.superClass = declared.superClass;
+		classInfo.interfaces = declared.interfaces;
+		classInfo.constructors = declared.constructors;
+
+		classInfo.fields = new ArrayList<>();
+		collectFields(declared, classInfo.fields, new HashSet<>(), supertypes);
+
+		var methods = new LinkedHashMap<String, MethodInfo>();
+		var visited = new HashSet<String>();
+		collectMethods(declared, methods, visited, false, supertypes);
+		if (declared.isInterface) {
+			// like Class.getMethods(), interfaces report the methods of Object
+			collectMethods(resolve(OBJECT, supertypes), methods, visited, false, supertypes);
+		}
+		classInfo.methods = new ArrayList<>(methods.values());
+		return classInfo;
+	}
+
+	/**
+	 * Same order as {@code Class.getFields()}: declared fields, fields of the
+	 * super interfaces, fields of the superclass.
+	 */
+	private static void collectFields(ClassInfo classInfo, List<FieldInfo> fields, Set<String> visited,
+			Function<String, ClassInfo> supertypes) {
+		if (classInfo == null || !visited.add(classInfo.name)) {
+			return;
+		}
+		fields.addAll(classInfo.fields);
+		for (var superInterface : classInfo.interfaces) {
+			collectFields(resolve(superInterface, supertypes), fields, visited, supertypes);
+		}
+		if (classInfo.superClass != null) {
+			collectFields(resolve(classInfo.superClass, supertypes), fields, visited, supertypes);
+		}
+	}
+
+	/**
+	 * Collects public methods like {@code Class.getMethods()}: a method that
+	 * is overridden (same name, parameter and return types) is only reported
+	 * once, for the most specific type. Covariant overrides are visible through
+	 * their bridge methods, as with reflection. Static methods of super
+	 * interfaces are not inherited.
+	 */
+	private static void collectMethods(ClassInfo classInfo, Map<String, MethodInfo> methods, Set<String> visited,
+			boolean inheritedFromInterface, Function<String, ClassInfo> supertypes) {
+		if (classInfo == null || !visited.add(classInfo.name)) {
+			return;
+		}
+		for (var method : classInfo.methods) {
+			if (!(inheritedFromInterface && method.isStatic)) {
+				methods.putIfAbsent(signature(method), method);
+			}
+		}
+		if (classInfo.superClass != null) {
+			collectMethods(resolve(classInfo.superClass, supertypes), methods, visited, false, supertypes);
+		}
+		for (var superInterface : classInfo.interfaces) {
+			collectMethods(resolve(superInterface, supertypes), methods, visited, true, supertypes);
+		}
+	}
+
+	private static String signature(MethodInfo method) {
+		var signature = new StringBuilder(method.name).append('(');
+		for (var parameter : method.parameters) {
+			signature.append(parameter.type).append(',');
+		}
+		return signature.append(')').append(method.returnType).toString();
+	}
+
+	private static ClassInfo resolve(String typeName, Function<String, ClassInfo> supertypes) {
+		var classInfo = supertypes.apply(typeName);
+		return classInfo != null && classInfo.error == null ? classInfo : null;
+	}
+
+}
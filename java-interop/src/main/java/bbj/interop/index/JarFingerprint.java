@@ -0,0 +1,114 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.index;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.zip.ZipFile;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Identifies one version of a classpath jar: path, size, modification time and
+ * a content hash.
+ * <p>
+ * For zip files the hash covers the central directory only (entry names,
+ * sizes and CRCs), which changes whenever any entry changes but does not
+ * require reading the compressed data. Other files are never read: the
+ * runtime image of a JDK ({@code lib/modules}) is identified by the
+ * {@code release} file of the JDK and its size, any other file by its size
+ * and modification time.
+ */
+public class JarFingerprint {
+
+	public String path;
+	public long size;
+	public long lastModified;
+	public String hash;
+
+	public static JarFingerprint of(Path file) throws IOException {
+		var fingerprint = stat(file);
+		fingerprint.hash = contentHash(file);
+		return fingerprint;
+	}
+
+	/**
+	 * Creates a fingerprint without the (more expensive) content hash.
+	 */
+	public static JarFingerprint stat(Path file) throws IOException {
+		var fingerprint = new JarFingerprint();
+		fingerprint.path = file.toAbsolutePath().normalize().toString();
+		fingerprint.size = Files.size(file);
+		fingerprint.lastModified = Files.getLastModifiedTime(file).toMillis();
+		return fingerprint;
+	}
+
+	/**
+	 * Checks whether {@code file} still has the content this fingerprint was
+	 * taken from. Size and modification time are compared first; the content
+	 * hash is only computed when they differ, so a touched but otherwise
+	 * unchanged jar is still recognized.
+	 */
+	public boolean matches(Path file) throws IOException {
+		var current = stat(file);
+		if (!Objects.equals(path, current.path)) {
+			return false;
+		}
+		if (size == current.size && lastModified == current.lastModified) {
+			return true;
+		}
+		return hash != null && size == current.size && hash.equals(contentHash(file));
+	}
+
+	static String contentHash(Path file) throws IOException {
+		Hasher hasher = Hashing.murmur3_128().newHasher();
+		var name = file.getFileName().toString();
+		if (name.endsWith(".jar") || name.endsWith(".zip")) {
+			try (var zip = new ZipFile(file.toFile())) {
+				for (var entry : Collections.list(zip.entries())) {
+					hasher.putUnencodedChars(entry.getName());
+					hasher.putLong(entry.getSize());
+					hasher.putLong(entry.getCrc());
+				}
+			}
+			return hasher.hash().toString();
+		}
+		hasher.putLong(Files.size(file));
+		var release = releaseFile(file);
+		if (release != null) {
+			// same for every installation of the JDK build, unlike the
+			// modification time
+			hasher.putBytes(Files.readAllBytes(release));
+		} else {
+			hasher.putLong(Files.getLastModifiedTime(file).toMillis());
+		}
+		return hasher.hash().toString();
+	}
+
+	/**
+	 * The {@code release} file of the JDK if the file is its runtime image,
+	 * otherwise {@code null}.
+	 */
+	private static Path releaseFile(Path file) {
+		var lib = file.toAbsolutePath().getParent();
+		if (!"modules".equals(file.getFileName().toString()) || lib == null || lib.getParent() == null
+				|| !"lib".equals(String.valueOf(lib.getFileName()))) {
+			return null;
+		}
+		var release = lib.getParent().resolve("release");
+		return Files.isRegularFile(release) ? release : null;
+	}
+
+	@Override
+	public String toString() {
+		return path + " (" + size + " bytes, " + hash + ")";
+	}
+
+}
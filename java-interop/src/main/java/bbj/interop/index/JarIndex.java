@@ -0,0 +1,257 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.index;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+
+import com.google.common.base.Stopwatch;
+
+import bbj.interop.index.ScanIndexStore.StoredScan;
+
+/**
+ * The classes found in one classpath entry, a jar or a class directory.
+ */
+public class JarIndex {
+
+	private final Path path;
+	private final List<String> classNames;
+	private final List<Path> manifestClassPath;
+	private final Map<String, List<String>> directSubtypes;
+	private final Set<String> nonPublicTypes;
+	private final Map<String, List<String>> methods;
+	private final Map<String, List<String>> fields;
+	private final long scanMillis;
+	/**
+	 * Size and modification time of a jar when it was scanned, {@code -1}
+	 * for directories.
+	 */
+	private final long size;
+	private final long lastModified;
+
+	private JarIndex(Path path, List<String> classNames, List<Path> manifestClassPath,
+			ClassFileIndexer indexer, long scanMillis, long size, long lastModified) {
+		this(path, classNames, manifestClassPath, indexer.getDirectSubtypes(), indexer.getNonPublicTypes(),
+				indexer.getMethods(), indexer.getFields(), scanMillis, size, lastModified);
+	}
+
+	private JarIndex(Path path, List<String> classNames, List<Path> manifestClassPath,
+			Map<String, List<String>> directSubtypes, Set<String> nonPublicTypes, Map<String, List<String>> methods,
+			Map<String, List<String>> fields, long scanMillis, long size, long lastModified) {
+		this.path = path;
+		this.classNames = classNames;
+		this.manifestClassPath = manifestClassPath;
+		this.directSubtypes = directSubtypes;
+		this.nonPublicTypes = nonPublicTypes;
+		this.methods = methods;
+		this.fields = fields;
+		this.scanMillis = scanMillis;
+		this.size = size;
+		this.lastModified = lastModified;
+	}
+
+	/**
+	 * Lists the class entries of a jar or class directory and reads the
+	 * supertypes and member names from their class files. No class is
+	 * loaded.
+	 */
+	public static JarIndex scan(Path path) throws IOException {
+		var sw = Stopwatch.createStarted();
+		var classNames = new ArrayList<String>();
+		var indexer = new ClassFileIndexer();
+		var manifestClassPath = Collections.<Path>emptyList();
+		long size = -1;
+		long lastModified = -1;
+		if (Files.isDirectory(path)) {
+			try (var files = Files.walk(path)) {
+				for (var file : (Iterable<Path>) files::iterator) {
+					var resourceName = path.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+					if (addClassName(classNames, resourceName)) {
+						indexer.add(Files.readAllBytes(file));
+					}
+				}
+			}
+		} else {
+			size = Files.size(path);
+			lastModified = Files.getLastModifiedTime(path).toMillis();
+			try (var jar = new JarFile(path.toFile(), false)) {
+				for (var entries = jar.entries(); entries.hasMoreElements();) {
+					var entry = entries.nextElement();
+					if (addClassName(classNames, entry.getName())) {
+						try (var in = jar.getInputStream(entry)) {
+							indexer.add(in.readAllBytes());
+						}
+					}
+				}
+				manifestClassPath = readManifestClassPath(path, jar);
+			}
+		}
+		Collections.sort(classNames);
+		return new JarIndex(path, Collections.unmodifiableList(classNames), manifestClassPath,
+				indexer, sw.elapsed(TimeUnit.MILLISECONDS), size, lastModified);
+	}
+
+	/**
+	 * Restores the index of a jar from a stored scan.
+	 *
+	 * @param stat of the jar, taken before the stored scan was checked
+	 *             against it
+	 */
+	static JarIndex of(Path path, StoredScan stored, JarFingerprint stat, long loadMillis) {
+		var manifestClassPath = new ArrayList<Path>();
+		if (stored.manifestClassPath != null) {
+			stored.manifestClassPath.forEach(entry -> manifestClassPath.add(Path.of(entry)));
+		}
+		return new JarIndex(path, stored.classNames, Collections.unmodifiableList(manifestClassPath),
+				stored.directSubtypes, stored.nonPublicTypes, stored.methods, stored.fields, loadMillis,
+				stat.size, stat.lastModified);
+	}
+
+	/**
+	 * @param fingerprint of the jar, taken before it was scanned
+	 */
+	StoredScan toStoredScan(JarFingerprint fingerprint) {
+		var stored = new StoredScan();
+		stored.fingerprint = fingerprint;
+		stored.classNames = classNames;
+		stored.manifestClassPath = manifestClassPath.stream().map(Path::toString).collect(Collectors.toList());
+		stored.directSubtypes = directSubtypes;
+		stored.nonPublicTypes = nonPublicTypes;
+		stored.methods = methods;
+		stored.fields = fields;
+		return stored;
+	}
+
+	/**
+	 * @return whether the resource is a class
+	 */
+	private static boolean addClassName(List<String> classNames, String resourceName) {
+		if (resourceName.endsWith(".class") && !resourceName.startsWith("META-INF/")) {
+			var className = resourceName.substring(0, resourceName.length() - ".class".length()).replace('/', '.');
+			// skips module-info and package-info
+			if (!className.contains("-")) {
+				classNames.add(className);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Resolves the {@code Class-Path} manifest attribute, which the
+	 * {@code URLClassLoader} follows as well.
+	 */
+	private static List<Path> readManifestClassPath(Path jarPath, JarFile jar) throws IOException {
+		var manifest = jar.getManifest();
+		var classPath = manifest != null ? manifest.getMainAttributes().getValue(Attributes.Name.CLASS_PATH) : null;
+		if (classPath == null || classPath.isBlank()) {
+			return Collections.emptyList();
+		}
+		var base = jarPath.toAbsolutePath().getParent().toUri();
+		var entries = new ArrayList<Path>();
+		for (var entry : classPath.trim().split("\\s+")) {
+			try {
+				URI resolved = base.resolve(entry);
+				if ("file".equals(resolved.getScheme())) {
+					var file = Path.of(resolved);
+					if (Files.exists(file)) {
+						entries.add(file);
+					}
+				}
+			} catch (IllegalArgumentException e) {
+				// invalid entries are ignored by the class loader as well
+			}
+		}
+		return entries;
+	}
+
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * Binary names of all classes, sorted, including nested classes.
+	 */
+	public List<String> getClassNames() {
+		return classNames;
+	}
+
+	/**
+	 * Binary names of all top-level classes.
+	 */
+	public List<String> getTopLevelClassNames() {
+		return classNames.stream().filter(name -> name.indexOf('$') < 0).collect(Collectors.toList());
+	}
+
+	/**
+	 * Binary names of the classes by their direct superclass or interface,
+	 * sorted, including classes that are not public.
+	 */
+	public Map<String, List<String>> getDirectSubtypes() {
+		return directSubtypes;
+	}
+
+	/**
+	 * Binary names of the classes that are not public.
+	 */
+	public Set<String> getNonPublicTypes() {
+		return nonPublicTypes;
+	}
+
+	/**
+	 * Binary names of the public classes by the names of their public
+	 * methods, sorted.
+	 */
+	public Map<String, List<String>> getMethods() {
+		return methods;
+	}
+
+	/**
+	 * Binary names of the public classes by the names of their public fields,
+	 * sorted.
+	 */
+	public Map<String, List<String>> getFields() {
+		return fields;
+	}
+
+	public List<Path> getManifestClassPath() {
+		return manifestClassPath;
+	}
+
+	/**
+	 * Time to scan the entry, or to load its stored scan.
+	 */
+	public long getScanMillis() {
+		return scanMillis;
+	}
+
+	/**
+	 * Whether the jar is unchanged since it was scanned. Directories are
+	 * never considered current, their content has no cheap fingerprint.
+	 */
+	public boolean isCurrent() {
+		if (size < 0) {
+			return false;
+		}
+		try {
+			return Files.size(path) == size && Files.getLastModifiedTime(path).toMillis() == lastModified;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+}
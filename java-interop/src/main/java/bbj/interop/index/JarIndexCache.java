@@ -0,0 +1,86 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.index;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Stopwatch;
+
+import bbj.interop.trace.Trace;
+
+/**
+ * Scanned jars shared by all {@link ClassPathIndex}es, so that a jar is only
+ * scanned again when it changed on disk. With an index directory the scans
+ * are stored as well, see {@link ScanIndexStore}, and survive a restart.
+ * Class directories are always rescanned.
+ */
+public class JarIndexCache {
+
+	private final Map<Path, JarIndex> jars = new ConcurrentHashMap<>();
+	private final ScanIndexStore store;
+
+	public JarIndexCache() {
+		this(null);
+	}
+
+	/**
+	 * @param indexDir directory of the stored scans, or {@code null} to keep
+	 *                 them in memory only
+	 */
+	public JarIndexCache(Path indexDir) {
+		this.store = indexDir != null ? new ScanIndexStore(indexDir) : null;
+	}
+
+	/**
+	 * Returns the index of a jar or class directory, scanning it if it is
+	 * neither cached nor stored or has changed since.
+	 */
+	public JarIndex get(Path entry) throws IOException {
+		var cached = jars.get(entry);
+		if (cached != null && cached.isCurrent()) {
+			return cached;
+		}
+		if (Files.isDirectory(entry)) {
+			jars.remove(entry);
+			return scan(entry);
+		}
+		var jarIndex = store != null ? load(entry) : null;
+		if (jarIndex == null) {
+			var fingerprint = store != null ? JarFingerprint.of(entry) : null;
+			jarIndex = scan(entry);
+			if (store != null) {
+				store.write(entry, jarIndex.toStoredScan(fingerprint));
+			}
+		}
+		jars.put(entry, jarIndex);
+		return jarIndex;
+	}
+
+	private JarIndex load(Path entry) throws IOException {
+		var sw = Stopwatch.createStarted();
+		var stat = JarFingerprint.stat(entry);
+		var stored = store.read(entry);
+		if (stored == null) {
+			return null;
+		}
+		var jarIndex = JarIndex.of(entry, stored, stat, sw.elapsed(TimeUnit.MILLISECONDS));
+		Trace.debug("Loaded index of %s: %d classes in %dms", entry, jarIndex.getClassNames().size(),
+				jarIndex.getScanMillis());
+		return jarIndex;
+	}
+
+	private static JarIndex scan(Path entry) throws IOException {
+		var jarIndex = JarIndex.scan(entry);
+		Trace.debug("Indexed %s: %d classes in %dms", entry, jarIndex.getClassNames().size(), jarIndex.getScanMillis());
+		return jarIndex;
+	}
+
+}
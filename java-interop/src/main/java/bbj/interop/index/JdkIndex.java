@@ -0,0 +1,245 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.index;
+
+import java.io.IOException;
+import java.lang.module.ModuleDescriptor;
+import java.net.URI;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.ProviderNotFoundException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import com.google.common.base.Stopwatch;
+
+import bbj.interop.index.ScanIndexStore.StoredScan;
+import bbj.interop.trace.Trace;
+
+/**
+ * Package to class index of the running JDK, read from its runtime image
+ * ({@code jrt:/}). Only the packages that the modules visible to a classpath
+ * context export to everyone, and the public top-level classes in them, are
+ * indexed. The index is built once, on first use, and stored in the index
+ * directory given to {@link #scanInBackground}, tagged with the fingerprint of
+ * the runtime image, see {@link ScanIndexStore}.
+ */
+public class JdkIndex {
+
+	private static volatile JdkIndex instance;
+	private static volatile Path indexDir;
+
+	private final Map<String, List<String>> packages;
+	private final Map<String, List<String>> directSubtypes;
+	private final Set<String> nonPublicTypes;
+	private final Map<String, List<String>> methods;
+	private final Map<String, List<String>> fields;
+
+	private JdkIndex(Map<String, List<String>> packages, ClassFileIndexer indexer) {
+		this(packages, indexer.getDirectSubtypes(), indexer.getNonPublicTypes(), indexer.getMethods(),
+				indexer.getFields());
+	}
+
+	private JdkIndex(Map<String, List<String>> packages, Map<String, List<String>> directSubtypes,
+			Set<String> nonPublicTypes, Map<String, List<String>> methods, Map<String, List<String>> fields) {
+		this.packages = packages;
+		this.directSubtypes = directSubtypes;
+		this.nonPublicTypes = nonPublicTypes;
+		this.methods = methods;
+		this.fields = fields;
+	}
+
+	public static JdkIndex get() {
+		var index = instance;
+		if (index == null) {
+			synchronized (JdkIndex.class) {
+				index = instance;
+				if (index == null) {
+					instance = index = scan();
+				}
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Builds the index on a background thread, so the first request does not
+	 * have to wait for it.
+	 *
+	 * @param indexDir where the index is stored, or {@code null} to build it
+	 *                 on every start
+	 */
+	public static void scanInBackground(Path indexDir) {
+		JdkIndex.indexDir = indexDir;
+		var thread = new Thread(JdkIndex::get, "bbj-interop-jdk-index");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private static JdkIndex scan() {
+		var runtimeImage = Path.of(System.getProperty("java.home"), "lib", "modules");
+		var store = indexDir != null && Files.isRegularFile(runtimeImage) ? new ScanIndexStore(indexDir) : null;
+		if (store == null) {
+			return scanRuntimeImage();
+		}
+		var sw = Stopwatch.createStarted();
+		var stored = store.read(runtimeImage);
+		// the visible modules depend on the options the JVM was started with
+		if (stored != null && moduleNames().equals(stored.modules)) {
+			Trace.info("Loaded JDK index: %d packages in %dms", stored.packages.size(),
+					sw.elapsed(TimeUnit.MILLISECONDS));
+			return new JdkIndex(stored.packages, stored.directSubtypes, stored.nonPublicTypes, stored.methods,
+					stored.fields);
+		}
+		JarFingerprint fingerprint;
+		try {
+			fingerprint = JarFingerprint.of(runtimeImage);
+		} catch (IOException e) {
+			Trace.warn("Failed to fingerprint %s: %s", runtimeImage, e.getMessage());
+			return scanRuntimeImage();
+		}
+		var index = scanRuntimeImage();
+		var scan = new StoredScan();
+		scan.fingerprint = fingerprint;
+		scan.modules = moduleNames();
+		scan.packages = index.packages;
+		scan.directSubtypes = index.directSubtypes;
+		scan.nonPublicTypes = index.nonPublicTypes;
+		scan.methods = index.methods;
+		scan.fields = index.fields;
+		store.write(runtimeImage, scan);
+		return index;
+	}
+
+	private static JdkIndex scanRuntimeImage() {
+		var sw = Stopwatch.createStarted();
+		Path modules;
+		try {
+			modules = FileSystems.getFileSystem(URI.create("jrt:/")).getPath("/modules");
+		} catch (FileSystemNotFoundException | ProviderNotFoundException e) {
+			Trace.warn("The JDK has no runtime image, JDK classes are not indexed");
+			return new JdkIndex(Collections.emptyMap(), new ClassFileIndexer());
+		}
+		var packages = new HashMap<String, List<String>>();
+		var indexer = new ClassFileIndexer();
+		int classCount = 0;
+		for (var descriptor : visibleModules()) {
+			for (var export : descriptor.exports()) {
+				if (export.isQualified()) {
+					continue;
+				}
+				var packageName = export.source();
+				var classes = scanPackage(modules.resolve(descriptor.name()).resolve(packageName.replace('.', '/')),
+						packageName, indexer);
+				if (!classes.isEmpty()) {
+					packages.put(packageName, classes);
+					classCount += classes.size();
+				}
+			}
+		}
+		Trace.info("Indexed JDK: %d classes in %d packages in %dms", classCount, packages.size(),
+				sw.elapsed(TimeUnit.MILLISECONDS));
+		return new JdkIndex(Collections.unmodifiableMap(packages), indexer);
+	}
+
+	/**
+	 * The modules whose classes a classpath context can load. Its class loader
+	 * delegates to the platform class loader, which sees the modules of the
+	 * boot layer defined by the boot and the platform class loader. Incubator
+	 * modules are not in the boot layer unless they are added explicitly, and
+	 * modules of the application class loader, such as {@code jdk.compiler},
+	 * are not visible to it.
+	 */
+	private static List<ModuleDescriptor> visibleModules() {
+		var platform = ClassLoader.getPlatformClassLoader();
+		return ModuleLayer.boot().modules().stream()
+				.filter(module -> module.getClassLoader() == null || module.getClassLoader() == platform)
+				.map(Module::getDescriptor).sorted(Comparator.comparing(ModuleDescriptor::name))
+				.collect(Collectors.toList());
+	}
+
+	private static List<String> moduleNames() {
+		return visibleModules().stream().map(ModuleDescriptor::name).collect(Collectors.toList());
+	}
+
+	private static List<String> scanPackage(Path directory, String packageName, ClassFileIndexer indexer) {
+		var classes = new ArrayList<String>();
+		try (var files = Files.list(directory)) {
+			for (var file : (Iterable<Path>) files::iterator) {
+				var fileName = file.getFileName().toString();
+				// skips nested classes, module-info and package-info
+				if (!fileName.endsWith(".class") || fileName.indexOf('$') >= 0 || fileName.contains("-")) {
+					continue;
+				}
+				var classFile = indexer.add(Files.readAllBytes(file));
+				if (classFile != null && classFile.isPublic()) {
+					classes.add(packageName + "." + fileName.substring(0, fileName.length() - ".class".length()));
+				}
+			}
+		} catch (IOException e) {
+			Trace.warn("Failed to index JDK package %s: %s", packageName, e.getMessage());
+		}
+		Collections.sort(classes);
+		return List.copyOf(classes);
+	}
+
+	/**
+	 * Fully qualified names of the public top-level classes by package name.
+	 */
+	public Map<String, List<String>> getPackages() {
+		return packages;
+	}
+
+	/**
+	 * Fully qualified names of the public top-level classes of a package,
+	 * sorted, empty if it is not a JDK package.
+	 */
+	public List<String> getTopLevelClasses(String packageName) {
+		return packages.getOrDefault(packageName, Collections.emptyList());
+	}
+
+	/**
+	 * Names of the top-level classes that directly extend or implement the
+	 * given type, sorted, see {@link ClassPathIndex#getDirectSubtypes}.
+	 */
+	public List<String> getDirectSubtypes(String typeName) {
+		return directSubtypes.getOrDefault(typeName, Collections.emptyList());
+	}
+
+	/**
+	 * Whether the class is a top-level class of an exported package that is
+	 * not public.
+	 */
+	public boolean isNonPublic(String className) {
+		return nonPublicTypes.contains(className);
+	}
+
+	/**
+	 * Names of the public top-level classes by the names of their public
+	 * methods.
+	 */
+	public Map<String, List<String>> getMethods() {
+		return methods;
+	}
+
+	/**
+	 * Names of the public top-level classes by the names of their public
+	 * fields.
+	 */
+	public Map<String, List<String>> getFields() {
+		return fields;
+	}
+
+}
@@ -0,0 +1,463 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.index;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import bbj.interop.data.ClassInfo;
+import bbj.interop.data.FieldInfo;
+import bbj.interop.data.MethodInfo;
+import bbj.interop.data.ParameterInfo;
+
+/**
+ * The {@link ClassInfo}s of one jar in a memory-mapped file. Records are
+ * decoded only when a class is requested, so the metadata stays in the OS
+ * page cache instead of the heap.
+ * <p>
+ * Layout, all numbers big-endian:
+ * <ol>
+ * <li>header: magic, format version, string count, class count, the
+ * fingerprint path and hash (string ids), size and modification time</li>
+ * <li>string offsets: one {@code int} per string</li>
+ * <li>class directory: name (string id) and record offset per class, sorted
+ * by the UTF-8 bytes of the name</li>
+ * <li>strings: UTF-8 byte length and bytes</li>
+ * <li>records: string ids, flags and counts, {@code -1} for {@code null}</li>
+ * </ol>
+ * A file is never modified once written, new metadata goes to a new file.
+ * <p>
+ * The mapping is released by {@link #close()} once the last running read has
+ * finished, rather than whenever the garbage collector gets to the buffer;
+ * until then the file cannot be deleted on Windows. Reads of a closed
+ * instance find nothing.
+ */
+final class MappedClassInfos {
+
+	private static final int MAGIC = 0x42424A49;
+	private static final int HEADER_SIZE = 40;
+
+	private static final int DEPRECATED = 1;
+	private static final int STATIC = 2;
+	private static final int INTERFACE = 4;
+
+	/**
+	 * Set in {@link #state} once closed, the other bits count running reads.
+	 */
+	private static final int CLOSED = Integer.MIN_VALUE;
+
+	private final ByteBuffer buffer;
+	private final AtomicInteger state = new AtomicInteger();
+	private final int stringCount;
+	private final int classCount;
+	private final int directoryStart;
+
+	private MappedClassInfos(ByteBuffer buffer) {
+		this.buffer = buffer;
+		this.stringCount = buffer.getInt(8);
+		this.classCount = buffer.getInt(12);
+		this.directoryStart = HEADER_SIZE + 4 * stringCount;
+	}
+
+	/**
+	 * Maps a file written by {@link #write}.
+	 *
+	 * @return {@code null} if the file has another format version
+	 */
+	static MappedClassInfos open(Path file, int version) throws IOException {
+		try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != version) {
+				unmap(buffer);
+				return null;
+			}
+			return new MappedClassInfos(buffer);
+		}
+	}
+
+	JarFingerprint getFingerprint() {
+		var fingerprint = new JarFingerprint();
+		fingerprint.path = string(buffer.getInt(16));
+		fingerprint.hash = string(buffer.getInt(20));
+		fingerprint.size = buffer.getLong(24);
+		fingerprint.lastModified = buffer.getLong(32);
+		return fingerprint;
+	}
+
+	int size() {
+		return classCount;
+	}
+
+	/**
+	 * Decodes the record of a class, {@code null} if it is not stored or this
+	 * instance is closed.
+	 */
+	ClassInfo get(String className) {
+		if (!acquire()) {
+			return null;
+		}
+		try {
+			return find(className);
+		} finally {
+			release();
+		}
+	}
+
+	private ClassInfo find(String className) {
+		var key = className.getBytes(StandardCharsets.UTF_8);
+		int low = 0;
+		int high = classCount - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int cmp = compareString(buffer.getInt(directoryStart + 8 * mid), key);
+			if (cmp < 0) {
+				low = mid + 1;
+			} else if (cmp > 0) {
+				high = mid - 1;
+			} else {
+				return new Decoder(buffer.getInt(directoryStart + 8 * mid + 4)).readClassInfo();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Decodes all records, e.g. to write them to the next file.
+	 *
+	 * @return {@code false} if this instance is closed, no record is passed
+	 *         to the consumer then
+	 */
+	boolean forEach(BiConsumer<String, ClassInfo> consumer) {
+		if (!acquire()) {
+			return false;
+		}
+		try {
+			for (int i = 0; i < classCount; i++) {
+				var name = string(buffer.getInt(directoryStart + 8 * i));
+				consumer.accept(name, new Decoder(buffer.getInt(directoryStart + 8 * i + 4)).readClassInfo());
+			}
+			return true;
+		} finally {
+			release();
+		}
+	}
+
+	/**
+	 * Releases the mapping as soon as no read is running any more. Later reads
+	 * find nothing, so callers drop their reference to this instance first.
+	 */
+	void close() {
+		if (state.getAndUpdate(value -> value | CLOSED) == 0) {
+			unmap(buffer);
+		}
+	}
+
+	private boolean acquire() {
+		while (true) {
+			int value = state.get();
+			if ((value & CLOSED) != 0) {
+				return false;
+			}
+			if (state.compareAndSet(value, value + 1)) {
+				return true;
+			}
+		}
+	}
+
+	private void release() {
+		if (state.decrementAndGet() == CLOSED) {
+			unmap(buffer);
+		}
+	}
+
+	/**
+	 * Unmaps a buffer without waiting for the garbage collector. The buffer
+	 * must not be accessed afterwards. Left to the garbage collector if the
+	 * runtime does not allow it.
+	 */
+	private static void unmap(ByteBuffer buffer) {
+		try {
+			var unsafeClass = Class.forName("sun.misc.Unsafe");
+			var unsafe = unsafeClass.getDeclaredField("theUnsafe");
+			unsafe.setAccessible(true);
+			unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(unsafe.get(null), buffer);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// released once the buffer is garbage collected
+		}
+	}
+
+	private int compareString(int id, byte[] key) {
+		int offset = buffer.getInt(HEADER_SIZE + 4 * id);
+		int length = buffer.getInt(offset);
+		var bytes = new byte[length];
+		buffer.get(offset + 4, bytes);
+		return Arrays.compareUnsigned(bytes, key);
+	}
+
+	private String string(int id) {
+		if (id < 0) {
+			return null;
+		}
+		int offset = buffer.getInt(HEADER_SIZE + 4 * id);
+		var bytes = new byte[buffer.getInt(offset)];
+		buffer.get(offset + 4, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Reads one record with absolute gets, so concurrent readers do not
+	 * interfere.
+	 */
+	private class Decoder {
+		private int position;
+
+		Decoder(int position) {
+			this.position = position;
+		}
+
+		private int readInt() {
+			int value = buffer.getInt(position);
+			position += 4;
+			return value;
+		}
+
+		private int readByte() {
+			return buffer.get(position++);
+		}
+
+		private String readString() {
+			return string(readInt());
+		}
+
+		ClassInfo readClassInfo() {
+			var classInfo = new ClassInfo();
+			classInfo.name = readString();
+			classInfo.packageName = readString();
+			classInfo.simpleName = readString();
+			classInfo.superClass = readString();
+			classInfo.error = readString();
+			int flags = readByte();
+			classInfo.isDeprecated = (flags & DEPRECATED) != 0;
+			classInfo.isInterface = (flags & INTERFACE) != 0;
+			int interfaceCount = readInt();
+			if (interfaceCount >= 0) {
+				classInfo.interfaces = new ArrayList<>(interfaceCount);
+				for (int i = 0; i < interfaceCount; i++) {
+					classInfo.interfaces.add(readString());
+				}
+			}
+			int fieldCount = readInt();
+			if (fieldCount >= 0) {
+				classInfo.fields = new ArrayList<>(fieldCount);
+				for (int i = 0; i < fieldCount; i++) {
+					classInfo.fields.add(readFieldInfo());
+				}
+			}
+			classInfo.methods = readMethodInfos();
+			classInfo.constructors = readMethodInfos();
+			return TypeNames.intern(classInfo);
+		}
+
+		private FieldInfo readFieldInfo() {
+			var field = new FieldInfo();
+			field.name = readString();
+			field.type = readString();
+			field.declaringClass = readString();
+			field.error = readString();
+			int flags = readByte();
+			field.isStatic = (flags & STATIC) != 0;
+			field.isDeprecated = (flags & DEPRECATED) != 0;
+			return field;
+		}
+
+		private List<MethodInfo> readMethodInfos() {
+			int count = readInt();
+			if (count < 0) {
+				return null;
+			}
+			var methods = new ArrayList<MethodInfo>(count);
+			for (int i = 0; i < count; i++) {
+				var method = new MethodInfo();
+				method.name = readString();
+				method.returnType = readString();
+				method.declaringClass = readString();
+				method.error = readString();
+				int flags = readByte();
+				method.isStatic = (flags & STATIC) != 0;
+				method.isDeprecated = (flags & DEPRECATED) != 0;
+				int parameterCount = readInt();
+				if (parameterCount >= 0) {
+					method.parameters = new ArrayList<>(parameterCount);
+					for (int j = 0; j < parameterCount; j++) {
+						var parameter = new ParameterInfo();
+						parameter.name = readString();
+						parameter.type = readString();
+						parameter.error = readString();
+						method.parameters.add(parameter);
+					}
+				}
+				methods.add(method);
+			}
+			return methods;
+		}
+	}
+
+	/**
+	 * Writes the class infos of a jar to a new file.
+	 */
+	static void write(Path file, int version, JarFingerprint fingerprint, Map<String, ClassInfo> classes)
+			throws IOException {
+		var encoder = new Encoder();
+		int pathId = encoder.id(fingerprint.path);
+		int hashId = encoder.id(fingerprint.hash);
+		var directory = new ArrayList<DirectoryEntry>(classes.size());
+		for (var entry : classes.entrySet()) {
+			directory.add(new DirectoryEntry(entry.getKey(), encoder.id(entry.getKey()), encoder.records.size()));
+			encoder.writeClassInfo(entry.getValue());
+		}
+		directory.sort((a, b) -> Arrays.compareUnsigned(a.name, b.name));
+
+		int stringsStart = HEADER_SIZE + 4 * encoder.strings.size() + 8 * directory.size();
+		int stringsSize = 0;
+		for (var bytes : encoder.strings) {
+			stringsSize += 4 + bytes.length;
+		}
+		int recordsStart = stringsStart + stringsSize;
+		try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(version);
+			out.writeInt(encoder.strings.size());
+			out.writeInt(directory.size());
+			out.writeInt(pathId);
+			out.writeInt(hashId);
+			out.writeLong(fingerprint.size);
+			out.writeLong(fingerprint.lastModified);
+			int offset = stringsStart;
+			for (var bytes : encoder.strings) {
+				out.writeInt(offset);
+				offset += 4 + bytes.length;
+			}
+			for (var entry : directory) {
+				out.writeInt(entry.nameId);
+				out.writeInt(recordsStart + entry.recordOffset);
+			}
+			for (var bytes : encoder.strings) {
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+			encoder.records.writeTo(out);
+		}
+	}
+
+	private static class DirectoryEntry {
+		final byte[] name;
+		final int nameId;
+		final int recordOffset;
+
+		DirectoryEntry(String name, int nameId, int recordOffset) {
+			this.name = name.getBytes(StandardCharsets.UTF_8);
+			this.nameId = nameId;
+			this.recordOffset = recordOffset;
+		}
+	}
+
+	private static class Encoder {
+		final Map<String, Integer> ids = new HashMap<>();
+		final List<byte[]> strings = new ArrayList<>();
+		final ByteArrayOutputStream records = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(records);
+
+		int id(String value) {
+			if (value == null) {
+				return -1;
+			}
+			return ids.computeIfAbsent(value, key -> {
+				strings.add(key.getBytes(StandardCharsets.UTF_8));
+				return strings.size() - 1;
+			});
+		}
+
+		void writeString(String value) throws IOException {
+			out.writeInt(id(value));
+		}
+
+		void writeClassInfo(ClassInfo classInfo) throws IOException {
+			writeString(classInfo.name);
+			writeString(classInfo.packageName);
+			writeString(classInfo.simpleName);
+			writeString(classInfo.superClass);
+			writeString(classInfo.error);
+			out.writeByte((classInfo.isDeprecated ? DEPRECATED : 0) | (classInfo.isInterface ? INTERFACE : 0));
+			if (classInfo.interfaces == null) {
+				out.writeInt(-1);
+			} else {
+				out.writeInt(classInfo.interfaces.size());
+				for (var type : classInfo.interfaces) {
+					writeString(type);
+				}
+			}
+			if (classInfo.fields == null) {
+				out.writeInt(-1);
+			} else {
+				out.writeInt(classInfo.fields.size());
+				for (var field : classInfo.fields) {
+					writeString(field.name);
+					writeString(field.type);
+					writeString(field.declaringClass);
+					writeString(field.error);
+					out.writeByte(flags(field.isStatic, field.isDeprecated));
+				}
+			}
+			writeMethodInfos(classInfo.methods);
+			writeMethodInfos(classInfo.constructors);
+		}
+
+		private void writeMethodInfos(List<MethodInfo> methods) throws IOException {
+			if (methods == null) {
+				out.writeInt(-1);
+				return;
+			}
+			out.writeInt(methods.size());
+			for (var method : methods) {
+				writeString(method.name);
+				writeString(method.returnType);
+				writeString(method.declaringClass);
+				writeString(method.error);
+				out.writeByte(flags(method.isStatic, method.isDeprecated));
+				if (method.parameters == null) {
+					out.writeInt(-1);
+					continue;
+				}
+				out.writeInt(method.parameters.size());
+				for (var parameter : method.parameters) {
+					writeString(parameter.name);
+					writeString(parameter.type);
+					writeString(parameter.error);
+				}
+			}
+		}
+
+		private static int flags(boolean isStatic, boolean isDeprecated) {
+			return (isStatic ? STATIC : 0) | (isDeprecated ? DEPRECATED : 0);
+		}
+	}
+
+}
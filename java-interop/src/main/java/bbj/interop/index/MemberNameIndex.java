@@ -0,0 +1,144 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import bbj.interop.data.MemberMatch;
+
+/**
+ * Reverse index from the names of public methods and fields to the public
+ * classes declaring them, merged from the per-jar maps collected while
+ * scanning.
+ * <p>
+ * Names are kept in an array sorted by lower case name, so a prefix query
+ * only looks at one contiguous range. Matches that keep the case of the
+ * prefix rank first, then names declared by more classes, then shorter
+ * names.
+ */
+public class MemberNameIndex {
+
+	private static final int MAX_DECLARING_CLASSES = 20;
+
+	private static final Comparator<Entry> ORDER = Comparator.comparing((Entry entry) -> entry.lowerName)
+			.thenComparing(entry -> entry.name).thenComparing(entry -> !entry.method);
+
+	private final Entry[] entries;
+	private final String[] sortedKeys;
+
+	private MemberNameIndex(Entry[] entries) {
+		this.entries = entries;
+		this.sortedKeys = Arrays.stream(entries).map(entry -> entry.lowerName).toArray(String[]::new);
+	}
+
+	/**
+	 * @param methods per source, class names by method name
+	 * @param fields  per source, class names by field name
+	 */
+	public static MemberNameIndex of(Collection<Map<String, List<String>>> methods,
+			Collection<Map<String, List<String>>> fields) {
+		var entries = new ArrayList<Entry>();
+		addEntries(entries, methods, true);
+		addEntries(entries, fields, false);
+		var sorted = entries.toArray(Entry[]::new);
+		Arrays.sort(sorted, ORDER);
+		return new MemberNameIndex(sorted);
+	}
+
+	private static void addEntries(List<Entry> entries, Collection<Map<String, List<String>>> sources,
+			boolean method) {
+		var merged = new TreeMap<String, Collection<String>>();
+		for (var source : sources) {
+			source.forEach((name, classNames) -> merged.merge(name, classNames, (existing, added) -> {
+				var union = new TreeSet<>(existing);
+				union.addAll(added);
+				return union;
+			}));
+		}
+		merged.forEach((name, classNames) -> entries.add(new Entry(name, method, classNames.toArray(String[]::new))));
+	}
+
+	public int size() {
+		return entries.length;
+	}
+
+	/**
+	 * Returns the best {@code limit} members whose name starts with the
+	 * prefix, ignoring case, best first.
+	 */
+	public List<MemberMatch> search(String prefix, int limit) {
+		if (prefix == null || prefix.isEmpty() || limit <= 0) {
+			return List.of();
+		}
+		var lowerPrefix = prefix.toLowerCase();
+		int from = lowerBound(lowerPrefix);
+		int to = lowerBound(lowerPrefix + Character.MAX_VALUE);
+		var rank = Comparator.comparing((Entry entry) -> !entry.name.startsWith(prefix))
+				.thenComparing(entry -> -entry.classNames.length).thenComparing(entry -> entry.name.length())
+				.thenComparing(ORDER);
+		// the root is the worst match kept so far
+		var best = new PriorityQueue<Entry>(limit + 1, rank.reversed());
+		for (int i = from; i < to; i++) {
+			var entry = entries[i];
+			if (best.size() < limit) {
+				best.add(entry);
+			} else if (rank.compare(entry, best.peek()) < 0) {
+				best.poll();
+				best.add(entry);
+			}
+		}
+		var result = new ArrayList<Entry>(best);
+		result.sort(rank);
+		var matches = new ArrayList<MemberMatch>(result.size());
+		for (var entry : result) {
+			var match = new MemberMatch();
+			match.name = entry.name;
+			match.isMethod = entry.method;
+			match.classCount = entry.classNames.length;
+			match.declaringClasses = Arrays.asList(entry.classNames)
+					.subList(0, Math.min(entry.classNames.length, MAX_DECLARING_CLASSES));
+			matches.add(match);
+		}
+		return matches;
+	}
+
+	private int lowerBound(String key) {
+		int low = 0;
+		int high = sortedKeys.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (sortedKeys[mid].compareTo(key) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	private static class Entry {
+		final String name;
+		final String lowerName;
+		final boolean method;
+		final String[] classNames;
+
+		Entry(String name, boolean method, String[] classNames) {
+			this.name = name;
+			this.lowerName = name.toLowerCase();
+			this.method = method;
+			this.classNames = classNames;
+		}
+	}
+
+}
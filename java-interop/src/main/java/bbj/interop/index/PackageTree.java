@@ -0,0 +1,108 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import bbj.interop.data.PackageTreeNode;
+
+/**
+ * All packages of a classpath and the JDK as a tree of name segments, with
+ * the number of top-level classes per package. Immutable once built.
+ */
+public class PackageTree {
+
+	private final int generation;
+	private final Map<String, Integer> classCounts;
+	private final List<PackageTreeNode> roots;
+
+	private PackageTree(int generation, Map<String, Integer> classCounts, List<PackageTreeNode> roots) {
+		this.generation = generation;
+		this.classCounts = classCounts;
+		this.roots = roots;
+	}
+
+	/**
+	 * @param generation identifies the state of the sources, see
+	 *                   {@link #getGeneration()}
+	 * @param sources    top-level class names by package; a package found in
+	 *                   several sources counts each class once
+	 */
+	public static PackageTree build(int generation, Collection<Map<String, List<String>>> sources) {
+		var firstSeen = new HashMap<String, List<String>>();
+		var shared = new HashMap<String, Set<String>>();
+		for (var source : sources) {
+			source.forEach((packageName, classNames) -> {
+				var previous = firstSeen.putIfAbsent(packageName, classNames);
+				if (previous != null) {
+					shared.computeIfAbsent(packageName, name -> new HashSet<>(previous)).addAll(classNames);
+				}
+			});
+		}
+		var classCounts = new TreeMap<String, Integer>();
+		firstSeen.forEach((packageName, classNames) -> classCounts.put(packageName, classNames.size()));
+		shared.forEach((packageName, classNames) -> classCounts.put(packageName, classNames.size()));
+		var root = new TreeMap<String, Builder>();
+		classCounts.forEach((packageName, count) -> {
+			var children = root;
+			Builder node = null;
+			for (var segment : packageName.split("\\.")) {
+				node = children.computeIfAbsent(segment, Builder::new);
+				children = node.children;
+			}
+			node.classCount = count;
+		});
+		var roots = new ArrayList<PackageTreeNode>();
+		root.values().forEach(builder -> roots.add(builder.build()));
+		return new PackageTree(generation, classCounts, List.copyOf(roots));
+	}
+
+	public int getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Names of all packages that contain classes, sorted.
+	 */
+	public Collection<String> getPackageNames() {
+		return classCounts.keySet();
+	}
+
+	public List<PackageTreeNode> getRoots() {
+		return roots;
+	}
+
+	private static class Builder {
+		final String name;
+		final TreeMap<String, Builder> children = new TreeMap<>();
+		int classCount;
+
+		Builder(String name) {
+			this.name = name;
+		}
+
+		PackageTreeNode build() {
+			var node = new PackageTreeNode();
+			node.name = name;
+			node.classCount = classCount;
+			if (!children.isEmpty()) {
+				node.children = new ArrayList<>(children.size());
+				for (var child : children.values()) {
+					node.children.add(child.build());
+				}
+			}
+			return node;
+		}
+	}
+
+}
@@ -0,0 +1,172 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.index;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import bbj.interop.trace.Trace;
+
+/**
+ * Stores what the scan of a jar or of the JDK runtime image collected from
+ * the class files (class names, supertypes and member names) in the index
+ * directory, tagged with the {@link JarFingerprint} of the scanned file. An
+ * unchanged file is not parsed again on the next start or when it is added
+ * to another classpath.
+ */
+final class ScanIndexStore {
+
+	/**
+	 * Bump whenever the stored format or what the scan collects changes.
+	 */
+	static final int FORMAT_VERSION = 2;
+
+	private final Path indexDir;
+	private final Gson gson = new Gson();
+
+	ScanIndexStore(Path indexDir) {
+		this.indexDir = indexDir;
+	}
+
+	/**
+	 * @return the stored scan of the file, {@code null} if there is none or
+	 *         the file has changed since
+	 */
+	StoredScan read(Path file) {
+		var storeFile = storeFile(file);
+		if (!Files.isRegularFile(storeFile)) {
+			return null;
+		}
+		try (Reader reader = new InputStreamReader(new GZIPInputStream(Files.newInputStream(storeFile)),
+				StandardCharsets.UTF_8)) {
+			var stored = gson.fromJson(reader, StoredScan.class);
+			if (stored == null || stored.version != FORMAT_VERSION || stored.fingerprint == null
+					|| !stored.fingerprint.matches(file)) {
+				return null;
+			}
+			return stored.intern();
+		} catch (IOException | JsonParseException e) {
+			Trace.warn("Ignoring unreadable scan index %s: %s", storeFile, e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * @param scan its fingerprint must be taken before the file is scanned,
+	 *             so a change during the scan is detected on the next read
+	 */
+	void write(Path file, StoredScan scan) {
+		scan.version = FORMAT_VERSION;
+		var storeFile = storeFile(file);
+		try {
+			Files.createDirectories(indexDir);
+			var tmp = Files.createTempFile(indexDir, storeFile.getFileName().toString(), ".tmp");
+			try {
+				try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(tmp)),
+						StandardCharsets.UTF_8)) {
+					gson.toJson(scan, writer);
+				}
+				Files.move(tmp, storeFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(tmp);
+			}
+		} catch (IOException e) {
+			Trace.error(e, "Failed to write scan index of %s", file);
+		}
+	}
+
+	private Path storeFile(Path file) {
+		var path = file.toAbsolutePath().normalize();
+		var key = Hashing.murmur3_128().hashUnencodedChars(path.toString()).toString();
+		return indexDir.resolve(path.getFileName() + "-" + key + ".scan.json.gz");
+	}
+
+	/**
+	 * The stored result of one scan. Fields that do not apply to the scanned
+	 * file are {@code null}.
+	 */
+	static class StoredScan {
+		int version;
+		JarFingerprint fingerprint;
+		/**
+		 * Of a jar: binary names of all classes, sorted.
+		 */
+		List<String> classNames;
+		/**
+		 * Of a jar: absolute paths of its manifest classpath.
+		 */
+		List<String> manifestClassPath;
+		/**
+		 * Of the JDK: names of the indexed modules, sorted.
+		 */
+		List<String> modules;
+		/**
+		 * Of the JDK: public top-level classes by package name.
+		 */
+		Map<String, List<String>> packages;
+		Map<String, List<String>> directSubtypes;
+		Set<String> nonPublicTypes;
+		Map<String, List<String>> methods;
+		Map<String, List<String>> fields;
+
+		/**
+		 * Replaces the names by their interned instances, like a scan shares
+		 * them between the maps, and makes the collections unmodifiable.
+		 */
+		private StoredScan intern() {
+			classNames = intern(classNames);
+			packages = intern(packages);
+			directSubtypes = intern(directSubtypes);
+			methods = intern(methods);
+			fields = intern(fields);
+			var names = new HashSet<String>();
+			if (nonPublicTypes != null) {
+				nonPublicTypes.forEach(name -> names.add(TypeNames.intern(name)));
+			}
+			nonPublicTypes = Set.copyOf(names);
+			return this;
+		}
+
+		private static List<String> intern(List<String> names) {
+			if (names == null) {
+				return List.of();
+			}
+			var interned = new ArrayList<String>(names.size());
+			names.forEach(name -> interned.add(TypeNames.intern(name)));
+			return Collections.unmodifiableList(interned);
+		}
+
+		private static Map<String, List<String>> intern(Map<String, List<String>> index) {
+			if (index == null) {
+				return Map.of();
+			}
+			var interned = new HashMap<String, List<String>>(index.size() * 4 / 3 + 1);
+			index.forEach((key, names) -> interned.put(TypeNames.intern(key), intern(names)));
+			return Collections.unmodifiableMap(interned);
+		}
+	}
+
+}
@@ -0,0 +1,64 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.index;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+import bbj.interop.data.ClassInfo;
+import bbj.interop.data.MethodInfo;
+
+/**
+ * Interns the type and declaring class names of cached {@link ClassInfo}s,
+ * so that e.g. every {@code java.lang.String} parameter of every cached class
+ * refers to the same string instance.
+ */
+public final class TypeNames {
+
+	private static final Interner<String> INTERNER = Interners.newWeakInterner();
+
+	private TypeNames() {
+	}
+
+	public static String intern(String name) {
+		return name != null ? INTERNER.intern(name) : null;
+	}
+
+	/**
+	 * Replaces the names in the given class info by their interned instances.
+	 */
+	public static ClassInfo intern(ClassInfo classInfo) {
+		classInfo.name = intern(classInfo.name);
+		classInfo.packageName = intern(classInfo.packageName);
+		classInfo.superClass = intern(classInfo.superClass);
+		if (classInfo.interfaces != null) {
+			classInfo.interfaces.replaceAll(TypeNames::intern);
+		}
+		if (classInfo.fields != null) {
+			classInfo.fields.forEach(field -> {
+				field.type = intern(field.type);
+				field.declaringClass = intern(field.declaringClass);
+			});
+		}
+		if (classInfo.methods != null) {
+			classInfo.methods.forEach(TypeNames::intern);
+		}
+		if (classInfo.constructors != null) {
+			classInfo.constructors.forEach(TypeNames::intern);
+		}
+		return classInfo;
+	}
+
+	private static void intern(MethodInfo method) {
+		method.name = intern(method.name);
+		method.returnType = intern(method.returnType);
+		method.declaringClass = intern(method.declaringClass);
+		if (method.parameters != null) {
+			method.parameters.forEach(parameter -> parameter.type = intern(parameter.type));
+		}
+	}
+
+}
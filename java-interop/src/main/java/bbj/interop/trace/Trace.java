@@ -0,0 +1,166 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.trace;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Leveled tracing of the interop service.
+ * <p>
+ * Events are recorded into a fixed size in-memory ring buffer, which the
+ * {@code dumpTrace} request returns. Only events at or above the console
+ * level are also printed, so the per-class events of the hot path do no I/O
+ * by default. Debug and trace events can additionally be sampled, keeping one
+ * in every {@code sampleRate}.
+ */
+public final class Trace {
+
+	private static volatile TraceLevel level = TraceLevel.DEBUG;
+	private static volatile TraceLevel consoleLevel = TraceLevel.INFO;
+	private static volatile int sampleRate = 1;
+	private static volatile AtomicReferenceArray<TraceEvent> buffer = new AtomicReferenceArray<>(4096);
+
+	private static final AtomicLong sequence = new AtomicLong();
+	private static final AtomicLong sampled = new AtomicLong();
+
+	private Trace() {
+	}
+
+	/**
+	 * @param level        events below this level are dropped
+	 * @param consoleLevel events at or above this level are printed as well
+	 * @param sampleRate   keep one in every {@code sampleRate} debug and trace
+	 *                     events
+	 * @param bufferSize   number of events kept in memory
+	 */
+	public static synchronized void configure(TraceLevel level, TraceLevel consoleLevel, int sampleRate,
+			int bufferSize) {
+		Trace.level = level;
+		Trace.consoleLevel = consoleLevel;
+		Trace.sampleRate = Math.max(1, sampleRate);
+		if (bufferSize != buffer.length()) {
+			buffer = new AtomicReferenceArray<>(Math.max(1, bufferSize));
+		}
+	}
+
+	public static boolean isEnabled(TraceLevel eventLevel) {
+		return eventLevel.isEnabled(level) || eventLevel.isEnabled(consoleLevel);
+	}
+
+	public static void error(Throwable throwable, String format, Object... args) {
+		record(TraceLevel.ERROR, format, args, throwable, -1);
+	}
+
+	public static void warn(String format, Object... args) {
+		record(TraceLevel.WARN, format, args, null, -1);
+	}
+
+	public static void info(String format, Object... args) {
+		record(TraceLevel.INFO, format, args, null, -1);
+	}
+
+	public static void debug(String format, Object... args) {
+		record(TraceLevel.DEBUG, format, args, null, -1);
+	}
+
+	public static void trace(String format, Object... args) {
+		record(TraceLevel.TRACE, format, args, null, -1);
+	}
+
+	/**
+	 * Starts a timed span, recorded with its duration when it is closed.
+	 * Spans that are disabled or not sampled cost nothing.
+	 */
+	public static Span span(TraceLevel spanLevel) {
+		return isEnabled(spanLevel) && isSampled(spanLevel) ? new Span(spanLevel) : Span.NONE;
+	}
+
+	/**
+	 * The recorded events still in the ring buffer, oldest first.
+	 */
+	public static List<TraceEvent> getEvents() {
+		var events = buffer;
+		var result = new ArrayList<TraceEvent>(events.length());
+		for (int i = 0; i < events.length(); i++) {
+			var event = events.get(i);
+			if (event != null) {
+				result.add(event);
+			}
+		}
+		result.sort(Comparator.comparingLong(TraceEvent::getSequence));
+		return result;
+	}
+
+	private static void record(TraceLevel eventLevel, String format, Object[] args, Throwable throwable,
+			long durationNanos) {
+		if (!isEnabled(eventLevel) || !isSampled(eventLevel)) {
+			return;
+		}
+		record(new TraceEvent(sequence.getAndIncrement(), eventLevel, format, args, throwable, durationNanos));
+	}
+
+	private static void record(TraceEvent event) {
+		if (event.getLevel().isEnabled(level)) {
+			var events = buffer;
+			events.set((int) (event.getSequence() % events.length()), event);
+		}
+		if (event.getLevel().isEnabled(consoleLevel)) {
+			System.out.println(event);
+			if (event.getThrowable() != null) {
+				event.getThrowable().printStackTrace();
+			}
+		}
+	}
+
+	private static boolean isSampled(TraceLevel eventLevel) {
+		int rate = sampleRate;
+		if (rate <= 1 || !TraceLevel.DEBUG.isEnabled(eventLevel)) {
+			return true;
+		}
+		return sampled.getAndIncrement() % rate == 0;
+	}
+
+	/**
+	 * A timed operation, use with try-with-resources.
+	 */
+	public static class Span implements AutoCloseable {
+
+		static final Span NONE = new Span(null);
+
+		private final TraceLevel spanLevel;
+		private final long start;
+		private String format = "";
+		private Object[] args;
+
+		private Span(TraceLevel spanLevel) {
+			this.spanLevel = spanLevel;
+			this.start = spanLevel != null ? System.nanoTime() : 0;
+		}
+
+		/**
+		 * Sets the message recorded when the span is closed.
+		 */
+		public void message(String format, Object... args) {
+			if (spanLevel != null) {
+				this.format = format;
+				this.args = args;
+			}
+		}
+
+		@Override
+		public void close() {
+			if (spanLevel != null) {
+				record(new TraceEvent(sequence.getAndIncrement(), spanLevel, format, args, null,
+						System.nanoTime() - start));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,86 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.trace;
+
+import java.util.Arrays;
+import java.util.IllegalFormatException;
+import java.util.Locale;
+
+/**
+ * One recorded event. The message is kept as format string and arguments and
+ * only formatted when it is printed or dumped.
+ */
+public final class TraceEvent {
+
+	private final long sequence;
+	private final long timeMillis;
+	private final TraceLevel level;
+	private final String thread;
+	private final String format;
+	private final Object[] args;
+	private final Throwable throwable;
+	private final long durationNanos;
+
+	TraceEvent(long sequence, TraceLevel level, String format, Object[] args, Throwable throwable,
+			long durationNanos) {
+		this.sequence = sequence;
+		this.timeMillis = System.currentTimeMillis();
+		this.level = level;
+		this.thread = Thread.currentThread().getName();
+		this.format = format;
+		this.args = args;
+		this.throwable = throwable;
+		this.durationNanos = durationNanos;
+	}
+
+	public long getSequence() {
+		return sequence;
+	}
+
+	public long getTimeMillis() {
+		return timeMillis;
+	}
+
+	public TraceLevel getLevel() {
+		return level;
+	}
+
+	public String getThread() {
+		return thread;
+	}
+
+	public String getMessage() {
+		if (args == null || args.length == 0) {
+			return format;
+		}
+		try {
+			return String.format(Locale.ROOT, format, args);
+		} catch (IllegalFormatException e) {
+			return format + " " + Arrays.toString(args);
+		}
+	}
+
+	public Throwable getThrowable() {
+		return throwable;
+	}
+
+	/**
+	 * Duration of a {@link Trace.Span}, {@code -1} for plain events.
+	 */
+	public long getDurationNanos() {
+		return durationNanos;
+	}
+
+	@Override
+	public String toString() {
+		var message = "[" + level + "] " + getMessage();
+		if (durationNanos >= 0) {
+			message += " (" + durationNanos / 1_000_000 + "ms)";
+		}
+		return message;
+	}
+
+}
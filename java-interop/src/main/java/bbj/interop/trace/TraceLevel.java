@@ -0,0 +1,36 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.trace;
+
+/**
+ * Severity of a {@link TraceEvent}, most severe first. A threshold of
+ * {@link #OFF} disables all events.
+ */
+public enum TraceLevel {
+	OFF, ERROR, WARN, INFO, DEBUG, TRACE;
+
+	/**
+	 * Whether events of this level pass the given threshold.
+	 */
+	public boolean isEnabled(TraceLevel threshold) {
+		return this != OFF && ordinal() <= threshold.ordinal();
+	}
+
+	/**
+	 * Parses a level name case-insensitively, falling back to the default
+	 * for unknown names.
+	 */
+	public static TraceLevel parse(String name, TraceLevel defaultLevel) {
+		if (name != null) {
+			for (var level : values()) {
+				if (level.name().equalsIgnoreCase(name.trim())) {
+					return level;
+				}
+			}
+		}
+		return defaultLevel;
+	}
+}
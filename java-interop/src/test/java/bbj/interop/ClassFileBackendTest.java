@@ -0,0 +1,245 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import bbj.interop.InteropSettings.MetadataBackend;
+import bbj.interop.data.ClassInfo;
+import bbj.interop.data.ClassInfoBatchParams;
+import bbj.interop.data.ClassInfoParams;
+import bbj.interop.data.ClassPathInfoParams;
+import bbj.interop.data.MethodInfo;
+import bbj.interop.index.ClassMetadataIndex;
+
+/**
+ * The class-file backend reports the same metadata as reflection.
+ */
+class ClassFileBackendTest {
+
+	private static final Map<String, String> SOURCES = Map.of(
+			"q.Sample", "package q;\n"
+					+ "public class Sample<T extends Comparable<T>> extends java.util.ArrayList<T> implements Runnable {\n"
+					+ "	public static final int CONSTANT = 1;\n"
+					+ "	public String name;\n"
+					+ "	protected int hidden;\n"
+					+ "	@Deprecated public int old;\n"
+					+ "	public Sample() {}\n"
+					+ "	public Sample(String name, int... values) {}\n"
+					+ "	Sample(long packagePrivate) {}\n"
+					+ "	public void run() {}\n"
+					+ "	public T first(java.util.List<? extends T> list) { return null; }\n"
+					+ "	@SafeVarargs public static <E> E[] pick(E... items) { return items; }\n"
+					+ "	public String[][] matrix() { return null; }\n"
+					+ "	public Nested nested(Inner inner) { return null; }\n"
+					+ "	@Deprecated public void legacy() {}\n"
+					+ "	void packagePrivate() {}\n"
+					+ "	public static class Nested { public int value; public Nested(Sample<?>.Inner inner) {} }\n"
+					+ "	public class Inner { public Sample<T> outer() { return Sample.this; } }\n"
+					+ "}",
+			"q.Shape", "package q; public interface Shape extends Comparable<Shape> {"
+					+ " double area(); default boolean isEmpty() { return area() == 0; } static Shape none() { return null; } }",
+			"q.Old", "package q; @Deprecated public class Old { public Old(Object... values) {} }");
+
+	private static final List<String> CLASSES = List.of("q.Sample", "q.Sample.Nested", "q.Sample.Inner", "q.Shape",
+			"q.Old");
+
+	@TempDir
+	Path tempDir;
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(2);
+	private Path jar;
+
+	@BeforeEach
+	void createJar() throws IOException {
+		var classDir = TestClasses.compile(tempDir, SOURCES);
+		Files.write(classDir.resolve("q/Broken.class"), brokenConstantPool());
+		Files.write(classDir.resolve("q/BadDescriptor.class"), badDescriptor());
+		jar = TestClasses.jar(classDir, tempDir.resolve("q.jar"));
+	}
+
+	@AfterEach
+	void shutdown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void declaredMembersMatchReflection() throws Exception {
+		compareBackends(true);
+	}
+
+	@Test
+	void inheritedMembersMatchReflection() throws Exception {
+		compareBackends(false);
+	}
+
+	@Test
+	void malformedClassFilesFailOnlyThemselves() throws Exception {
+		var service = createService(MetadataBackend.CLASS_FILE);
+		try {
+			var params = new ClassInfoBatchParams();
+			params.classNames = List.of("q.Broken", "q.BadDescriptor", "q.Old");
+			var result = service.getClassInfoBatch(params).get(30, TimeUnit.SECONDS);
+			assertEquals(3, result.size());
+			assertTrue(result.get(0).error.startsWith("Invalid class file for q.Broken"), result.get(0).error);
+			assertTrue(result.get(1).error.startsWith("Invalid class file for q.BadDescriptor"), result.get(1).error);
+			assertNull(result.get(2).error);
+		} finally {
+			service.dispose();
+		}
+	}
+
+	private void compareBackends(boolean declaredOnly) throws Exception {
+		var reflection = createService(MetadataBackend.REFLECTION);
+		var classFile = createService(MetadataBackend.CLASS_FILE);
+		try {
+			for (var className : CLASSES) {
+				var expected = getClassInfo(reflection, className, declaredOnly);
+				var actual = getClassInfo(classFile, className, declaredOnly);
+				assertNull(expected.error, className);
+				assertEquals(describe(expected), describe(actual), className);
+			}
+			var sample = getClassInfo(classFile, "q.Sample", declaredOnly);
+			assertTrue(sample.methods.stream().anyMatch(method -> method.name.equals("legacy") && method.isDeprecated));
+			assertTrue(getClassInfo(classFile, "q.Old", declaredOnly).isDeprecated);
+		} finally {
+			reflection.dispose();
+			classFile.dispose();
+		}
+	}
+
+	private InteropService createService(MetadataBackend backend) throws Exception {
+		var previous = System.getProperty(InteropSettings.BACKEND);
+		System.setProperty(InteropSettings.BACKEND, backend.getId());
+		try {
+			var metadataIndex = new ClassMetadataIndex(null, backend.getId());
+			var contexts = new ClassPathContexts(0, metadataIndex, false);
+			var service = new InteropService(metadataIndex, contexts, new InteropMetrics(metadataIndex, contexts),
+					executor);
+			var params = new ClassPathInfoParams();
+			params.classPathEntries = new ArrayList<>(List.of(jar.toUri().toString()));
+			assertTrue(service.loadClasspath(params).get(30, TimeUnit.SECONDS));
+			return service;
+		} finally {
+			if (previous != null) {
+				System.setProperty(InteropSettings.BACKEND, previous);
+			} else {
+				System.clearProperty(InteropSettings.BACKEND);
+			}
+		}
+	}
+
+	private static ClassInfo getClassInfo(InteropService service, String className, boolean declaredOnly)
+			throws Exception {
+		var params = new ClassInfoParams();
+		params.className = className;
+		params.declaredOnly = declaredOnly;
+		var classInfo = service.getClassInfo(params).get(30, TimeUnit.SECONDS);
+		assertNotNull(classInfo, className);
+		return classInfo;
+	}
+
+	/**
+	 * A comparable description; members are sorted, as neither reflection nor
+	 * the class file guarantees an order. Parameter names are left out, the
+	 * test classes are compiled without {@code -parameters}.
+	 */
+	private static List<String> describe(ClassInfo classInfo) {
+		var description = new ArrayList<String>();
+		description.add("class " + classInfo.name + " " + classInfo.simpleName + " in " + classInfo.packageName
+				+ " extends " + classInfo.superClass + " implements " + classInfo.interfaces + " interface "
+				+ classInfo.isInterface + " deprecated " + classInfo.isDeprecated);
+		description.add("fields " + classInfo.fields.stream().map(field -> field.declaringClass + "." + field.name
+				+ ":" + field.type + " static " + field.isStatic + " deprecated " + field.isDeprecated)
+				.collect(Collectors.toCollection(TreeSet::new)));
+		description.add("methods " + describe(classInfo.methods));
+		description.add("constructors " + describe(classInfo.constructors));
+		return description;
+	}
+
+	private static TreeSet<String> describe(List<MethodInfo> methods) {
+		return methods.stream().map(method -> method.declaringClass + "." + method.name + method.parameters.stream()
+				.map(parameter -> parameter.type).collect(Collectors.joining(",", "(", ")")) + ":"
+				+ method.returnType + " static " + method.isStatic + " deprecated " + method.isDeprecated)
+				.collect(Collectors.toCollection(TreeSet::new));
+	}
+
+	/**
+	 * A class file whose {@code this_class} points past its empty constant
+	 * pool.
+	 */
+	private static byte[] brokenConstantPool() throws IOException {
+		var bytes = new ByteArrayOutputStream();
+		var out = new DataOutputStream(bytes);
+		out.writeInt(0xCAFEBABE);
+		out.writeShort(0);
+		out.writeShort(61);
+		out.writeShort(1);
+		out.writeShort(0x21);
+		out.writeShort(0x100);
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * A valid class file with a public field of type {@code Lfoo}, which lacks
+	 * the terminating {@code ;}.
+	 */
+	private static byte[] badDescriptor() throws IOException {
+		var bytes = new ByteArrayOutputStream();
+		var out = new DataOutputStream(bytes);
+		out.writeInt(0xCAFEBABE);
+		out.writeShort(0);
+		out.writeShort(61);
+		out.writeShort(7);
+		out.writeByte(1);
+		out.writeUTF("q/BadDescriptor");
+		out.writeByte(7);
+		out.writeShort(1);
+		out.writeByte(1);
+		out.writeUTF("java/lang/Object");
+		out.writeByte(7);
+		out.writeShort(3);
+		out.writeByte(1);
+		out.writeUTF("field");
+		out.writeByte(1);
+		out.writeUTF("Lfoo");
+		out.writeShort(0x21);
+		out.writeShort(2);
+		out.writeShort(4);
+		out.writeShort(0);
+		out.writeShort(1);
+		out.writeShort(0x1);
+		out.writeShort(5);
+		out.writeShort(6);
+		out.writeShort(0);
+		out.writeShort(0);
+		out.writeShort(0);
+		return bytes.toByteArray();
+	}
+
+}
@@ -0,0 +1,98 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.ImmutableSortedMultiset;
+
+import bbj.interop.index.JarIndexCache;
+
+class ClassPathContextTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void subtypesThroughPackagePrivateClass() throws Exception {
+		var classDir = TestClasses.compile(tempDir, Map.of(
+				"p.Base", "package p; public interface Base {}",
+				"p.Middle", "package p; abstract class Middle implements Base {}",
+				"p.Leaf", "package p; public class Leaf extends Middle {}",
+				"p.SubLeaf", "package p; public class SubLeaf extends Leaf {}"));
+		var context = new ClassPathContext("test", 1, List.of(classDir.toUri().toURL()), new JarIndexCache());
+		try {
+			context.index(() -> {
+			});
+			assertEquals(List.of("p.Leaf", "p.SubLeaf"), context.getSubtypes("p.Base", true, 100));
+			assertEquals(List.of("p.Leaf"), context.getSubtypes("p.Base", false, 100));
+			// StringBuilder implements Appendable via AbstractStringBuilder
+			assertTrue(context.getSubtypes("java.lang.Appendable", false, 1000).contains("java.lang.StringBuilder"));
+		} finally {
+			context.close();
+		}
+	}
+
+	@Test
+	void directSubtypesStopAtPublicClasses() throws Exception {
+		var classDir = TestClasses.compile(tempDir, Map.of(
+				"p.Base", "package p; public interface Base {}",
+				"p.Middle", "package p; abstract class Middle implements Base {}",
+				"p.Inner", "package p; abstract class Inner extends Middle {}",
+				"p.Leaf", "package p; public class Leaf extends Inner {}",
+				"p.Hidden", "package p; class Hidden extends Leaf {}",
+				"p.Deep", "package p; public class Deep extends Hidden {}",
+				"p.Other", "package p; public class Other implements Base {}"));
+		var context = new ClassPathContext("test", 1, List.of(classDir.toUri().toURL()), new JarIndexCache());
+		try {
+			context.index(() -> {
+			});
+			// looks through both package-private classes, but not past Leaf
+			assertEquals(List.of("p.Other", "p.Leaf"), context.getSubtypes("p.Base", false, 100));
+			assertEquals(List.of("p.Other", "p.Leaf", "p.Deep"), context.getSubtypes("p.Base", true, 100));
+			assertEquals(List.of("p.Deep"), context.getSubtypes("p.Leaf", false, 100));
+			assertEquals(List.of("p.Other"), context.getSubtypes("p.Base", true, 1));
+			assertEquals(List.of("p.Leaf"), context.getSubtypes("p.Middle", false, 100));
+		} finally {
+			context.close();
+		}
+	}
+
+	@Test
+	void guavaSubtypesThroughPackagePrivateClasses() throws Exception {
+		var guava = ImmutableMultiset.class.getProtectionDomain().getCodeSource().getLocation();
+		var context = new ClassPathContext("test", 1, List.of(guava), new JarIndexCache());
+		try {
+			context.index(() -> {
+			});
+			// ImmutableMultiset extends ImmutableMultisetGwtSerializationDependencies
+			var direct = context.getSubtypes(ImmutableCollection.class.getName(), false, 1000);
+			assertTrue(direct.contains(ImmutableMultiset.class.getName()), direct::toString);
+			// ImmutableSortedMultiset extends ImmutableSortedMultisetFauxverideShim
+			assertFalse(direct.contains(ImmutableSortedMultiset.class.getName()), direct::toString);
+			assertTrue(context.getSubtypes(ImmutableMultiset.class.getName(), false, 1000)
+					.contains(ImmutableSortedMultiset.class.getName()));
+			var transitive = context.getSubtypes(ImmutableCollection.class.getName(), true, 1000);
+			assertTrue(transitive.contains(ImmutableSortedMultiset.class.getName()), transitive::toString);
+			assertTrue(transitive.stream().noneMatch(name -> name.endsWith("GwtSerializationDependencies")
+					|| name.endsWith("FauxverideShim")), transitive::toString);
+		} finally {
+			context.close();
+		}
+	}
+
+}
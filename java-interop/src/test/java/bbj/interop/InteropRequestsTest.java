@@ -0,0 +1,425 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.eclipse.lsp4j.jsonrpc.ResponseErrorException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.gson.Gson;
+
+import bbj.interop.data.ClassInfo;
+import bbj.interop.data.ClassInfoChunk;
+import bbj.interop.data.ClassInfoParams;
+import bbj.interop.data.ClassInfosPageParams;
+import bbj.interop.data.ClassInfosStreamParams;
+import bbj.interop.data.ClassNamesParams;
+import bbj.interop.data.ClassPathInfoParams;
+import bbj.interop.data.ClassesInvalidatedParams;
+import bbj.interop.data.EncodedClassInfos;
+import bbj.interop.data.EncodedMethodInfo;
+import bbj.interop.data.FieldInfo;
+import bbj.interop.data.FindMembersParams;
+import bbj.interop.data.MethodInfo;
+import bbj.interop.data.PackageInfoParams;
+import bbj.interop.data.PackageTreeNode;
+import bbj.interop.data.ParameterInfo;
+import bbj.interop.index.ClassMetadataIndex;
+
+/**
+ * The class and package requests, answered for a classpath of test classes
+ * and the JDK.
+ */
+class InteropRequestsTest {
+
+	private static final Map<String, String> SOURCES = Map.of(
+			"r.Shape", "package r; public interface Shape { double area(); }",
+			"r.Circle", "package r; public class Circle implements Shape {"
+					+ " public double radius; public double area() { return radius * radius * Math.PI; } }",
+			"r.Square", "package r; public class Square implements Shape {"
+					+ " public double side; public double area() { return side * side; } }",
+			"r.sub.deep.Thing", "package r.sub.deep; public class Thing {}",
+			"r.sub.deep.Other", "package r.sub.deep; public class Other { public static class Nested {} }");
+
+	@TempDir
+	Path tempDir;
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(2);
+	private InteropService service;
+
+	@BeforeEach
+	void createService() throws Exception {
+		var classDir = TestClasses.compile(tempDir, SOURCES);
+		// the same classes twice
+		var jar = TestClasses.jar(classDir, tempDir.resolve("r.jar"));
+		var copy = TestClasses.jar(classDir, tempDir.resolve("copy.jar"));
+		var metadataIndex = new ClassMetadataIndex(null, "reflection");
+		var contexts = new ClassPathContexts(0, metadataIndex, false);
+		service = new InteropService(metadataIndex, contexts, new InteropMetrics(metadataIndex, contexts), executor);
+		var params = new ClassPathInfoParams();
+		params.classPathEntries = new ArrayList<>(List.of(jar.toUri().toString(), copy.toUri().toString()));
+		assertTrue(service.loadClasspath(params).get(30, TimeUnit.SECONDS));
+	}
+
+	@AfterEach
+	void shutdown() {
+		service.dispose();
+		executor.shutdownNow();
+	}
+
+	@Test
+	void classInfosInPages() throws Exception {
+		var params = new ClassInfosPageParams();
+		params.packageName = "r";
+		params.pageSize = 2;
+		var page = service.getClassInfosPage(params).get(30, TimeUnit.SECONDS);
+		assertEquals(List.of("r.Circle", "r.Shape"), names(page.classes));
+		assertEquals("r.Shape", page.nextCursor);
+		params.cursor = page.nextCursor;
+		page = service.getClassInfosPage(params).get(30, TimeUnit.SECONDS);
+		assertEquals(List.of("r.Square"), names(page.classes));
+		assertNull(page.nextCursor);
+
+		// a cursor that is no class name continues after its position
+		params.cursor = "r.D";
+		params.pageSize = Integer.MAX_VALUE;
+		page = service.getClassInfosPage(params).get(30, TimeUnit.SECONDS);
+		assertEquals(List.of("r.Shape", "r.Square"), names(page.classes));
+		assertNull(page.nextCursor);
+		params.cursor = "r.Square";
+		assertEquals(List.of(), service.getClassInfosPage(params).get(30, TimeUnit.SECONDS).classes);
+
+		params.pageSize = 0;
+		var error = assertThrows(ExecutionException.class,
+				() -> service.getClassInfosPage(params).get(30, TimeUnit.SECONDS));
+		assertInstanceOf(ResponseErrorException.class, error.getCause());
+	}
+
+	@Test
+	void streamedClassInfos() throws Exception {
+		var params = new ClassInfosStreamParams();
+		params.packageName = "r";
+		params.partialResultToken = "token";
+		params.chunkSize = 2;
+		// no client to receive the chunks
+		var error = assertThrows(ExecutionException.class,
+				() -> service.streamClassInfos(params).get(30, TimeUnit.SECONDS));
+		assertInstanceOf(ResponseErrorException.class, error.getCause());
+
+		var chunks = new ArrayList<ClassInfoChunk>();
+		service.connect(new LanguageServer() {
+			@Override
+			public void classInfosChunk(ClassInfoChunk chunk) {
+				chunks.add(chunk);
+			}
+
+			@Override
+			public void classesInvalidated(ClassesInvalidatedParams params) {
+			}
+		});
+		assertEquals(3, service.streamClassInfos(params).get(30, TimeUnit.SECONDS));
+		assertEquals(2, chunks.size());
+		assertEquals(List.of("r.Circle", "r.Shape"), names(chunks.get(0).classes));
+		assertEquals(List.of("r.Square"), names(chunks.get(1).classes));
+		for (var chunk : chunks) {
+			assertEquals("token", chunk.partialResultToken);
+			assertEquals("r", chunk.packageName);
+		}
+	}
+
+	@Test
+	void declaredOrInheritedMembers() throws Exception {
+		var circle = getClassInfo("r.Circle", true);
+		assertEquals("java.lang.Object", circle.superClass);
+		assertEquals(List.of("r.Shape"), circle.interfaces);
+		assertEquals(Set.of("area()double"), signatures(circle.methods));
+		assertEquals(Set.of("radius"), fieldNames(circle.fields));
+		var inheritedCircle = getClassInfo("r.Circle", false);
+		var expected = new HashSet<>(reflectedSignatures(Object.class));
+		expected.add("area()double");
+		assertEquals(expected, signatures(inheritedCircle.methods));
+		assertTrue(inheritedCircle.methods.stream().anyMatch(method -> method.name.equals("hashCode")
+				&& method.declaringClass.equals("java.lang.Object")));
+
+		for (var clazz : List.of(ArrayList.class, StringBuilder.class, List.class, ConcurrentHashMap.class,
+				Integer.class)) {
+			var className = clazz.getName();
+			var declared = getClassInfo(className, true);
+			for (var member : declared.methods) {
+				assertEquals(declared.name, member.declaringClass, className + "." + member.name);
+			}
+			for (var member : declared.fields) {
+				assertEquals(declared.name, member.declaringClass, className + "." + member.name);
+			}
+			// the inherited view reports what reflection reports
+			var inherited = getClassInfo(className, false);
+			assertEquals(reflectedSignatures(clazz), signatures(inherited.methods), className);
+			assertEquals(Arrays.stream(clazz.getFields()).map(Field::getName).collect(Collectors.toSet()),
+					fieldNames(inherited.fields), className);
+			assertEquals(declared.constructors.size(), inherited.constructors.size(), className);
+		}
+	}
+
+	@Test
+	void encodedClassInfosDecodeToClassInfos() throws Exception {
+		var gson = new Gson();
+		for (var packageName : List.of("r", "java.util.function")) {
+			var params = new PackageInfoParams();
+			params.packageName = packageName;
+			var classInfos = service.getClassInfos(params).get(30, TimeUnit.SECONDS);
+			var encoded = service.getClassInfosEncoded(params).get(30, TimeUnit.SECONDS);
+			assertEquals(encoded.strings.size(), Set.copyOf(encoded.strings).size());
+			// compared as JSON, as the client would see them
+			assertEquals(gson.toJsonTree(classInfos), gson.toJsonTree(decode(encoded)), packageName);
+		}
+	}
+
+	@Test
+	void typeNamesAreInterned() throws Exception {
+		var params = new PackageInfoParams();
+		params.packageName = "java.util.function";
+		// the first instance of each type name
+		var instances = new HashMap<String, String>();
+		for (var classInfo : service.getClassInfos(params).get(30, TimeUnit.SECONDS)) {
+			for (var method : classInfo.methods) {
+				var types = new ArrayList<String>(List.of(method.returnType, method.declaringClass));
+				method.parameters.forEach(parameter -> types.add(parameter.type));
+				for (var type : types) {
+					assertSame(instances.computeIfAbsent(type, key -> type), type, type);
+				}
+			}
+		}
+		assertTrue(instances.containsKey("java.lang.Object"));
+	}
+
+	@Test
+	void packageTree() throws Exception {
+		var roots = service.getPackageTree(null).get(30, TimeUnit.SECONDS);
+		assertEquals(roots.stream().map(node -> node.name).sorted().toList(),
+				roots.stream().map(node -> node.name).toList());
+		var r = find(roots, "r");
+		assertEquals(3, r.classCount);
+		var sub = find(r.children, "sub");
+		assertEquals(0, sub.classCount);
+		var deep = find(sub.children, "deep");
+		// nested classes are not counted
+		assertEquals(2, deep.classCount);
+		assertNull(deep.children);
+		var java = find(roots, "java");
+		assertEquals(0, java.classCount);
+		assertTrue(find(java.children, "util").classCount > 50);
+		// cached until the classpath changes
+		assertSame(roots, service.getPackageTree(null).get(30, TimeUnit.SECONDS));
+
+		var classDir = TestClasses.compile(tempDir.resolve("more"),
+				Map.of("r.sub.Added", "package r.sub; public class Added {}"));
+		var load = new ClassPathInfoParams();
+		load.classPathEntries = new ArrayList<>(
+				List.of(TestClasses.jar(classDir, tempDir.resolve("more.jar")).toUri().toString()));
+		assertTrue(service.loadClasspath(load).get(30, TimeUnit.SECONDS));
+		var reloaded = service.getPackageTree(null).get(30, TimeUnit.SECONDS);
+		assertEquals(1, find(find(reloaded, "r").children, "sub").classCount);
+	}
+
+	@Test
+	void topLevelPackages() throws Exception {
+		var packages = new HashMap<String, Boolean>();
+		for (var summary : service.getTopLevelPackages().get(30, TimeUnit.SECONDS)) {
+			assertNull(packages.put(summary.packageName, summary.hasSubpackages), summary.packageName);
+		}
+		assertEquals(true, packages.get("r"));
+		assertEquals(false, packages.get("r.sub.deep"));
+		assertEquals(true, packages.get("java.util"));
+		assertEquals(false, packages.get("java.sql"));
+		// packages without classes are left out
+		assertFalse(packages.containsKey("r.sub"));
+		assertFalse(packages.containsKey("java"));
+	}
+
+	@Test
+	void membersOfScannedClasses() throws Exception {
+		var params = new FindMembersParams();
+		params.namePrefix = "radi";
+		var radius = service.findMembers(params).get(30, TimeUnit.SECONDS).stream()
+				.filter(match -> match.name.equals("radius")).findFirst().orElseThrow();
+		assertFalse(radius.isMethod);
+		assertTrue(radius.declaringClasses.contains("r.Circle"));
+
+		params.namePrefix = "area";
+		var area = service.findMembers(params).get(30, TimeUnit.SECONDS).stream()
+				.filter(match -> match.name.equals("area")).findFirst().orElseThrow();
+		assertTrue(area.isMethod);
+		assertTrue(area.declaringClasses.containsAll(List.of("r.Circle", "r.Shape", "r.Square")));
+
+		// JDK members are found as well, up to the limit
+		params.namePrefix = "setText";
+		params.limit = 1;
+		var matches = service.findMembers(params).get(30, TimeUnit.SECONDS);
+		assertEquals(1, matches.size());
+		assertEquals("setText", matches.get(0).name);
+		assertTrue(matches.get(0).declaringClasses.contains("java.awt.TextComponent"));
+	}
+
+	@Test
+	void allClassNamesAreSortedAndDistinct() throws Exception {
+		var classNames = service.getAllClassNames(null).get(30, TimeUnit.SECONDS);
+		assertTrue(classNames.contains("r.Circle"));
+		assertTrue(classNames.contains("java.lang.String"));
+		assertEquals(classNames.stream().sorted().distinct().toList(), classNames);
+	}
+
+	@Test
+	void allClassNamesInPages() throws Exception {
+		var classNames = service.getAllClassNames(new ClassNamesParams()).get(30, TimeUnit.SECONDS);
+		var paged = new ArrayList<String>();
+		var params = new ClassNamesParams();
+		params.limit = 1000;
+		for (params.offset = 0; params.offset < classNames.size(); params.offset += params.limit) {
+			var page = service.getAllClassNames(params).get(30, TimeUnit.SECONDS);
+			assertEquals(Math.min(params.limit, classNames.size() - params.offset), page.size());
+			paged.addAll(page);
+		}
+		assertEquals(classNames, paged);
+
+		// out of range
+		params.offset = classNames.size() + 1;
+		assertEquals(List.of(), service.getAllClassNames(params).get(30, TimeUnit.SECONDS));
+		params.offset = -1;
+		params.limit = 2;
+		assertEquals(classNames.subList(0, 2), service.getAllClassNames(params).get(30, TimeUnit.SECONDS));
+		params.offset = 0;
+		params.limit = Integer.MAX_VALUE;
+		assertEquals(classNames, service.getAllClassNames(params).get(30, TimeUnit.SECONDS));
+	}
+
+	private static PackageTreeNode find(List<PackageTreeNode> nodes, String name) {
+		assertNotNull(nodes, name);
+		return nodes.stream().filter(node -> node.name.equals(name)).findFirst().orElseThrow();
+	}
+
+	private ClassInfo getClassInfo(String className, boolean declaredOnly) throws Exception {
+		var params = new ClassInfoParams();
+		params.className = className;
+		params.declaredOnly = declaredOnly;
+		var classInfo = service.getClassInfo(params).get(30, TimeUnit.SECONDS);
+		assertNull(classInfo.error, className);
+		return classInfo;
+	}
+
+	private static Set<String> signatures(List<MethodInfo> methods) {
+		return methods.stream().map(method -> method.name + method.parameters.stream()
+				.map(parameter -> parameter.type).collect(Collectors.joining(",", "(", ")")) + method.returnType)
+				.collect(Collectors.toSet());
+	}
+
+	/**
+	 * Like {@link #signatures}, with the type names the service reports.
+	 * Interfaces include the methods of {@code Object}.
+	 */
+	private static Set<String> reflectedSignatures(Class<?> clazz) {
+		var methods = new ArrayList<>(List.of(clazz.getMethods()));
+		if (clazz.isInterface()) {
+			methods.addAll(List.of(Object.class.getMethods()));
+		}
+		return methods.stream().map(method -> method.getName() + Arrays.stream(method.getParameterTypes())
+				.map(InteropRequestsTest::typeName).collect(Collectors.joining(",", "(", ")"))
+				+ typeName(method.getReturnType())).collect(Collectors.toSet());
+	}
+
+	private static String typeName(Class<?> type) {
+		var component = type.isArray() ? type.getComponentType() : type;
+		return component.getCanonicalName() != null ? component.getCanonicalName() : component.getName();
+	}
+
+	private static Set<String> fieldNames(List<FieldInfo> fields) {
+		return fields.stream().map(field -> field.name).collect(Collectors.toSet());
+	}
+
+	/**
+	 * The client side of {@link ClassInfoEncoder}.
+	 */
+	private static List<ClassInfo> decode(EncodedClassInfos encoded) {
+		IntFunction<String> string = index -> index >= 0 ? encoded.strings.get(index) : null;
+		var classInfos = new ArrayList<ClassInfo>();
+		for (var encodedClass : encoded.classes) {
+			var classInfo = new ClassInfo();
+			classInfo.name = string.apply(encodedClass.name);
+			classInfo.packageName = string.apply(encodedClass.packageName);
+			classInfo.simpleName = string.apply(encodedClass.simpleName);
+			classInfo.isDeprecated = encodedClass.isDeprecated;
+			classInfo.isInterface = encodedClass.isInterface;
+			classInfo.superClass = string.apply(encodedClass.superClass);
+			classInfo.interfaces = IntStream.of(encodedClass.interfaces).mapToObj(string).toList();
+			classInfo.error = encodedClass.error;
+			classInfo.fields = encodedClass.fields.stream().map(encodedField -> {
+				var field = new FieldInfo();
+				field.name = string.apply(encodedField.name);
+				field.type = string.apply(encodedField.type);
+				field.declaringClass = string.apply(encodedField.declaringClass);
+				field.isStatic = encodedField.isStatic;
+				field.isDeprecated = encodedField.isDeprecated;
+				return field;
+			}).toList();
+			classInfo.methods = decode(encodedClass.methods, string);
+			classInfo.constructors = decode(encodedClass.constructors, string);
+			classInfos.add(classInfo);
+		}
+		return classInfos;
+	}
+
+	private static List<MethodInfo> decode(List<EncodedMethodInfo> encodedMethods, IntFunction<String> string) {
+		return encodedMethods.stream().map(encodedMethod -> {
+			var method = new MethodInfo();
+			method.name = string.apply(encodedMethod.name);
+			method.returnType = string.apply(encodedMethod.returnType);
+			method.declaringClass = string.apply(encodedMethod.declaringClass);
+			method.parameters = new ArrayList<>();
+			for (int i = 0; i < encodedMethod.parameterTypes.length; i++) {
+				var parameter = new ParameterInfo();
+				parameter.name = string.apply(encodedMethod.parameterNames[i]);
+				parameter.type = string.apply(encodedMethod.parameterTypes[i]);
+				method.parameters.add(parameter);
+			}
+			method.isStatic = encodedMethod.isStatic;
+			method.isDeprecated = encodedMethod.isDeprecated;
+			return method;
+		}).toList();
+	}
+
+	private static List<String> names(List<ClassInfo> classInfos) {
+		return classInfos.stream().map(classInfo -> classInfo.name).toList();
+	}
+
+}
@@ -0,0 +1,186 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.lsp4j.jsonrpc.CancelChecker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import bbj.interop.data.ClassInfo;
+import bbj.interop.data.ClassPathInfoParams;
+import bbj.interop.data.PackageInfoParams;
+import bbj.interop.index.ClassMetadataIndex;
+
+class InteropServiceTest {
+
+	@TempDir
+	Path tempDir;
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+	@AfterEach
+	void shutdown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void reloadClasspathWhileLoadingClasses() throws Exception {
+		var classDir = TestClasses.compile(tempDir, Map.of(
+				"p.A", "package p; public class A { public void a() {} }",
+				"p.B", "package p; public class B extends A { public void b() {} }",
+				"p.C", "package p; public class C extends B { public void c() {} }"));
+		var jar = TestClasses.jar(classDir, tempDir.resolve("p.jar"));
+
+		// blocks the request after its first class, before p.B is loaded
+		var blocked = new CountDownLatch(1);
+		var resume = new CountDownLatch(1);
+		var metadataIndex = new ClassMetadataIndex(null, "reflection") {
+			@Override
+			public ClassInfo get(Path origin, String className) {
+				if ("p.B".equals(className) && blocked.getCount() > 0) {
+					blocked.countDown();
+					try {
+						resume.await(30, TimeUnit.SECONDS);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				return super.get(origin, className);
+			}
+		};
+		var contexts = new ClassPathContexts(0, metadataIndex, false);
+		var service = new InteropService(metadataIndex, contexts, new InteropMetrics(metadataIndex, contexts),
+				executor);
+
+		var load = new ClassPathInfoParams();
+		load.classPathEntries = new ArrayList<>(List.of(jar.toUri().toString()));
+		assertTrue(service.loadClasspath(load).get(30, TimeUnit.SECONDS));
+		var loaded = contexts.getContexts().stream()
+				.filter(context -> context.getUrls().size() == 1).findFirst().orElseThrow();
+
+		var params = new PackageInfoParams();
+		params.packageName = "p";
+		var classInfos = service.getClassInfos(params);
+		assertTrue(blocked.await(30, TimeUnit.SECONDS));
+
+		var reload = new ClassPathInfoParams();
+		reload.classPathEntries = new ArrayList<>();
+		service.reloadClasspath(reload).get(30, TimeUnit.SECONDS);
+		// the running request still uses the class loader of the jar
+		assertTrue(contexts.getContexts().contains(loaded));
+
+		resume.countDown();
+		var result = classInfos.get(30, TimeUnit.SECONDS);
+		assertEquals(List.of("p.A", "p.B", "p.C"), result.stream().map(classInfo -> classInfo.name).toList());
+		for (var classInfo : result) {
+			assertNull(classInfo.error, classInfo.name);
+		}
+		assertTrue(result.get(2).methods.stream().anyMatch(method -> method.name.equals("a")));
+		// closed once the request released it
+		assertFalse(contexts.getContexts().contains(loaded));
+		service.dispose();
+	}
+
+	@Test
+	void disposeWhileIndexingClasspath() throws Exception {
+		var jar = TestClasses.jar(TestClasses.compile(tempDir, Map.of("p.A", "package p; public class A {}")),
+				tempDir.resolve("p.jar"));
+		var metadataIndex = new ClassMetadataIndex(null, "reflection");
+		var contexts = new BlockingContexts(metadataIndex, "p.jar");
+		var service = new InteropService(metadataIndex, contexts, new InteropMetrics(metadataIndex, contexts),
+				executor);
+
+		var load = new ClassPathInfoParams();
+		load.classPathEntries = new ArrayList<>(List.of(jar.toUri().toString()));
+		var loaded = service.loadClasspath(load);
+		assertTrue(contexts.blocked.await(30, TimeUnit.SECONDS));
+		// not blocked by the indexing request
+		CompletableFuture.runAsync(service::dispose).get(5, TimeUnit.SECONDS);
+
+		contexts.resume.countDown();
+		var error = assertThrows(ExecutionException.class, () -> loaded.get(30, TimeUnit.SECONDS));
+		assertInstanceOf(CancellationException.class, error.getCause());
+		// the context indexed for the request is released, and closed by the idle timer
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!contexts.getContexts().isEmpty() && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		assertTrue(contexts.getContexts().isEmpty(), contexts.getContexts()::toString);
+	}
+
+	@Test
+	void concurrentLoadsExtendEachOther() throws Exception {
+		var classDir = TestClasses.compile(tempDir, Map.of("p.A", "package p; public class A {}"));
+		var first = TestClasses.jar(classDir, tempDir.resolve("first.jar"));
+		var second = TestClasses.jar(classDir, tempDir.resolve("second.jar"));
+		var metadataIndex = new ClassMetadataIndex(null, "reflection");
+		var contexts = new BlockingContexts(metadataIndex, "first.jar");
+		var service = new InteropService(metadataIndex, contexts, new InteropMetrics(metadataIndex, contexts),
+				executor);
+
+		var loadFirst = new ClassPathInfoParams();
+		loadFirst.classPathEntries = new ArrayList<>(List.of(first.toUri().toString()));
+		var firstLoaded = service.loadClasspath(loadFirst);
+		assertTrue(contexts.blocked.await(30, TimeUnit.SECONDS));
+		var loadSecond = new ClassPathInfoParams();
+		loadSecond.classPathEntries = new ArrayList<>(List.of(second.toUri().toString()));
+		assertTrue(service.loadClasspath(loadSecond).get(5, TimeUnit.SECONDS));
+
+		contexts.resume.countDown();
+		assertTrue(firstLoaded.get(30, TimeUnit.SECONDS));
+		assertEquals(List.of(second, first), service.getClassPathIndex().getEntries());
+		service.dispose();
+	}
+
+	/**
+	 * Blocks the first indexing of a classpath that contains the given jar.
+	 */
+	private static class BlockingContexts extends ClassPathContexts {
+		final CountDownLatch blocked = new CountDownLatch(1);
+		final CountDownLatch resume = new CountDownLatch(1);
+		private final String jarName;
+
+		BlockingContexts(ClassMetadataIndex metadataIndex, String jarName) {
+			super(0, metadataIndex, false);
+			this.jarName = jarName;
+		}
+
+		@Override
+		public ClassPathContext acquire(List<URL> urls, CancelChecker cancelChecker) {
+			if (urls.stream().anyMatch(url -> url.getPath().endsWith("/" + jarName)) && blocked.getCount() > 0) {
+				blocked.countDown();
+				try {
+					resume.await(30, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			return super.acquire(urls, cancelChecker);
+		}
+	}
+
+}
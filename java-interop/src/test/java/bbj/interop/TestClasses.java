@@ -0,0 +1,75 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import javax.tools.ToolProvider;
+
+/**
+ * Compiles test classes into a class directory or jar.
+ */
+public final class TestClasses {
+
+	private TestClasses() {
+	}
+
+	/**
+	 * @param sources source code by fully qualified class name
+	 * @return the class directory
+	 */
+	public static Path compile(Path directory, Map<String, String> sources) throws IOException {
+		var sourceDir = Files.createDirectories(directory.resolve("src"));
+		var classDir = Files.createDirectories(directory.resolve("classes"));
+		var arguments = new ArrayList<>(List.of("-d", classDir.toString()));
+		for (var source : sources.entrySet()) {
+			var file = sourceDir.resolve(source.getKey().replace('.', '/') + ".java");
+			Files.createDirectories(file.getParent());
+			Files.writeString(file, source.getValue());
+			arguments.add(file.toString());
+		}
+		int result = ToolProvider.getSystemJavaCompiler().run(null, null, null, arguments.toArray(String[]::new));
+		if (result != 0) {
+			throw new IllegalStateException("Failed to compile test classes");
+		}
+		return classDir;
+	}
+
+	/**
+	 * Packs the classes of a class directory into a jar.
+	 *
+	 * @param manifestClassPath entries of the {@code Class-Path} manifest
+	 *                          attribute, relative to the jar
+	 */
+	public static Path jar(Path classDir, Path jarFile, String... manifestClassPath) throws IOException {
+		var manifest = new Manifest();
+		manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+		if (manifestClassPath.length > 0) {
+			manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH, String.join(" ", manifestClassPath));
+		}
+		try (var out = new JarOutputStream(Files.newOutputStream(jarFile), manifest);
+				var files = Files.walk(classDir)) {
+			for (var file : (Iterable<Path>) files::iterator) {
+				if (Files.isRegularFile(file)) {
+					out.putNextEntry(new JarEntry(classDir.relativize(file).toString().replace('\\', '/')));
+					Files.copy(file, out);
+					out.closeEntry();
+				}
+			}
+		}
+		return jarFile;
+	}
+
+}
@@ -0,0 +1,173 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import bbj.interop.data.ClassInfo;
+
+class ClassMetadataIndexTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void flushMapsNewFileAndReleasesPrevious() throws Exception {
+		var jar = tempDir.resolve("a.jar");
+		try (var out = new ZipOutputStream(Files.newOutputStream(jar))) {
+			out.putNextEntry(new ZipEntry("p/A.class"));
+		}
+		var indexDir = tempDir.resolve("index");
+		var index = new ClassMetadataIndex(indexDir, true, "classfile");
+
+		index.put(jar, "p.A", classInfo("p.A"));
+		index.flush();
+		var metadata = index.open(jar);
+		var first = metadata.mappedClasses;
+		index.put(jar, "p.B", classInfo("p.B"));
+		index.flush();
+
+		// the previous mapping is closed and its file deleted
+		assertNull(first.get("p.A"));
+		var files = binFiles(indexDir);
+		assertEquals(1, files.size(), files::toString);
+		assertTrue(files.get(0).endsWith(".2.bin"), files::toString);
+		assertEquals("p.A", index.get(jar, "p.A").name);
+		assertEquals("p.B", index.get(jar, "p.B").name);
+
+		index.invalidate(jar);
+		assertNull(metadata.mappedClasses);
+		assertEquals("p.B", new ClassMetadataIndex(indexDir, true, "classfile").get(jar, "p.B").name);
+	}
+
+	@Test
+	void concurrentFlushesWriteEveryEntry() throws Exception {
+		var jar = tempDir.resolve("a.jar");
+		try (var out = new ZipOutputStream(Files.newOutputStream(jar))) {
+			out.putNextEntry(new ZipEntry("p/A.class"));
+		}
+		var indexDir = tempDir.resolve("index");
+		for (boolean mapped : new boolean[] { false, true }) {
+			var index = new ClassMetadataIndex(indexDir, mapped, "classfile");
+			var executor = Executors.newFixedThreadPool(4);
+			try {
+				var flushes = new ArrayList<Future<?>>();
+				for (int i = 0; i < 200; i++) {
+					index.put(jar, "p.C" + i + mapped, classInfo("p.C" + i));
+					flushes.add(executor.submit(index::flush));
+				}
+				for (var flush : flushes) {
+					flush.get(30, TimeUnit.SECONDS);
+				}
+			} finally {
+				executor.shutdownNow();
+			}
+			index.flush();
+			// read back from the stored files
+			var reloaded = new ClassMetadataIndex(indexDir, mapped, "classfile");
+			for (int i = 0; i < 200; i++) {
+				assertEquals("p.C" + i, reloaded.get(jar, "p.C" + i + mapped).name);
+			}
+			try (var files = Files.list(indexDir)) {
+				assertEquals(0, files.filter(file -> file.toString().endsWith(".tmp")).count());
+			}
+		}
+	}
+
+	@Test
+	void snapshotOfRelocatedJars() throws Exception {
+		var jar = jar(tempDir.resolve("install/lib/a.jar"), "content");
+		var exporting = new ClassMetadataIndex(null, "classfile");
+		exporting.put(jar, "p.A", classInfo("p.A"));
+		exporting.put(jar, "p.B", classInfo("p.B"));
+		assertEquals(2, exporting.exportSnapshot(tempDir.resolve("install/index.snapshot")));
+
+		// shipped along with the jars, the locations are relative
+		var copy = tempDir.resolve("copy");
+		Files.createDirectories(copy.resolve("lib"));
+		Files.copy(jar, copy.resolve("lib/a.jar"));
+		Files.copy(tempDir.resolve("install/index.snapshot"), copy.resolve("index.snapshot"));
+		var copiedJar = copy.resolve("lib/a.jar");
+		var indexDir = tempDir.resolve("index");
+		var importing = new ClassMetadataIndex(indexDir, "classfile");
+		var existing = classInfo("p.A");
+		existing.isDeprecated = true;
+		importing.put(copiedJar, "p.A", existing);
+
+		// classes already in the index are kept
+		assertEquals(1, importing.importSnapshot(copy.resolve("index.snapshot")));
+		assertTrue(importing.get(copiedJar, "p.A").isDeprecated);
+		assertEquals("p.B", importing.get(copiedJar, "p.B").name);
+		// and stored in the index directory
+		importing.flush();
+		assertEquals("p.B", new ClassMetadataIndex(indexDir, "classfile").get(copiedJar, "p.B").name);
+	}
+
+	@Test
+	void snapshotOfOtherJarsOrBackendIsIgnored() throws Exception {
+		var jar = jar(tempDir.resolve("lib/a.jar"), "content");
+		var exporting = new ClassMetadataIndex(null, "classfile");
+		exporting.put(jar, "p.A", classInfo("p.A"));
+		var snapshot = tempDir.resolve("index.snapshot");
+		exporting.exportSnapshot(snapshot);
+
+		assertEquals(0, new ClassMetadataIndex(null, "reflection").importSnapshot(snapshot));
+		// the jar changed since the export
+		jar(jar, "CONTENT");
+		var importing = new ClassMetadataIndex(null, "classfile");
+		assertEquals(0, importing.importSnapshot(snapshot));
+		assertNull(importing.get(jar, "p.A"));
+
+		Files.writeString(snapshot, "not gzipped");
+		assertEquals(0, importing.importSnapshot(snapshot));
+	}
+
+	private static Path jar(Path file, String content) throws Exception {
+		Files.createDirectories(file.getParent());
+		try (var out = new ZipOutputStream(Files.newOutputStream(file))) {
+			out.putNextEntry(new ZipEntry("p/A.class"));
+			out.write(content.getBytes(StandardCharsets.UTF_8));
+		}
+		return file;
+	}
+
+	private static ClassInfo classInfo(String name) {
+		var classInfo = new ClassInfo();
+		classInfo.name = name;
+		classInfo.packageName = "p";
+		classInfo.simpleName = name.substring(2);
+		classInfo.superClass = "java.lang.Object";
+		classInfo.interfaces = new ArrayList<>();
+		classInfo.fields = new ArrayList<>();
+		classInfo.methods = new ArrayList<>();
+		classInfo.constructors = new ArrayList<>();
+		return classInfo;
+	}
+
+	private static List<String> binFiles(Path indexDir) throws Exception {
+		try (var files = Files.list(indexDir)) {
+			return files.map(file -> file.getFileName().toString()).filter(name -> name.endsWith(".bin"))
+					.sorted().toList();
+		}
+	}
+
+}
@@ -0,0 +1,61 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class ClassNameSearchTest {
+
+	private final ClassNameTable table = ClassNameTable.of(List.of(
+			List.of("java.util.HashMap", "java.util.HashSet", "java.util.LinkedHashMap",
+					"java.util.concurrent.ConcurrentHashMap", "java.util.Base64Decoder"),
+			List.of("a.HashMapper", "p.ClassMap", "p.HMacSignatureProvider", "p.hashing", "p.AbcXyzEfg",
+					"q.HashMap", "x.HeapManager")));
+
+	@Test
+	void exactBeforePrefixBeforeCamelHumps() {
+		assertEquals(List.of("java.util.HashMap", "q.HashMap", "a.HashMapper"), table.search("HashMap", 10));
+		// a prefix wins over shorter camel hump matches, which never skip the first hump
+		assertEquals(List.of("p.HMacSignatureProvider", "java.util.HashMap", "q.HashMap", "a.HashMapper",
+				"x.HeapManager"), table.search("HM", 10));
+	}
+
+	@Test
+	void caseSensitiveMatchesFirst() {
+		assertEquals(List.of("java.util.HashMap", "java.util.HashSet", "q.HashMap", "a.HashMapper", "p.hashing"),
+				table.search("Hash", 10));
+		assertEquals(List.of("p.hashing", "java.util.HashMap", "java.util.HashSet", "q.HashMap", "a.HashMapper"),
+				table.search("hash", 10));
+		assertEquals(List.of("java.util.HashMap", "q.HashMap", "a.HashMapper"), table.search("hashmap", 10));
+	}
+
+	@Test
+	void skippedHumpsRankLower() {
+		assertEquals(List.of("p.ClassMap", "java.util.concurrent.ConcurrentHashMap"), table.search("CM", 10));
+		assertEquals(List.of("java.util.concurrent.ConcurrentHashMap"), table.search("CoHaMa", 10));
+		assertEquals(List.of("java.util.Base64Decoder"), table.search("B64D", 10));
+	}
+
+	@Test
+	void queryHumpMustFitNameHump() {
+		// "Abcx" would match across the humps "Abc" and "Xyz"
+		assertEquals(List.of(), table.search("AbcxEf", 10));
+		assertEquals(List.of("p.AbcXyzEfg"), table.search("AbcEf", 10));
+	}
+
+	@Test
+	void resultCountIsBounded() {
+		assertEquals(List.of("p.HMacSignatureProvider", "java.util.HashMap"), table.search("HM", 2));
+		assertEquals(List.of(), table.search("HM", 0));
+		assertEquals(List.of(), table.search("", 10));
+		assertEquals(List.of(), table.search(null, 10));
+	}
+
+}
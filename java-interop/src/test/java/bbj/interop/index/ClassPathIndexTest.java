@@ -0,0 +1,54 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import bbj.interop.TestClasses;
+
+class ClassPathIndexTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void cancelDuringManifestBatchAddsNothing() throws Exception {
+		var libJar = TestClasses.jar(TestClasses.compile(tempDir.resolve("lib"),
+				Map.of("lib.Helper", "package lib; public class Helper {}")), tempDir.resolve("lib.jar"));
+		var appJar = TestClasses.jar(TestClasses.compile(tempDir.resolve("app"),
+				Map.of("app.Main", "package app; public class Main {}")), tempDir.resolve("app.jar"), "lib.jar");
+		var index = new ClassPathIndex(1, new JarIndexCache());
+
+		// lets app.jar through, cancels before lib.jar from its manifest
+		var checks = new AtomicInteger();
+		assertThrows(CancellationException.class, () -> index.addAll(List.of(appJar), () -> {
+			if (checks.incrementAndGet() > 1) {
+				throw new CancellationException();
+			}
+		}));
+		assertEquals(2, checks.get());
+		assertTrue(index.getEntries().isEmpty());
+		assertTrue(index.getPackages().isEmpty());
+
+		var added = index.addAll(List.of(appJar), () -> {
+		});
+		assertEquals(List.of(appJar, libJar), added.stream().map(JarIndex::getPath).toList());
+		assertEquals(List.of("app.Main"), index.getTopLevelClasses("app"));
+		assertEquals(List.of("lib.Helper"), index.getTopLevelClasses("lib"));
+	}
+
+}
@@ -0,0 +1,71 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JarIndexCacheTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void storedScanIsUsedUntilTheJarChanges() throws Exception {
+		var jar = jar(tempDir.resolve("lib.jar"), "java.util.AbstractList", "java.util.ArrayList");
+		var indexDir = tempDir.resolve("index");
+
+		var scanned = new JarIndexCache(indexDir).get(jar);
+		try (var files = Files.list(indexDir)) {
+			assertEquals(1, files.filter(file -> file.toString().endsWith(".scan.json.gz")).count());
+		}
+		var loaded = new JarIndexCache(indexDir).get(jar);
+		assertEquals(List.of("java.util.AbstractList", "java.util.ArrayList"), loaded.getClassNames());
+		assertEquals(scanned.getDirectSubtypes(), loaded.getDirectSubtypes());
+		assertEquals(scanned.getNonPublicTypes(), loaded.getNonPublicTypes());
+		assertEquals(scanned.getMethods(), loaded.getMethods());
+		assertEquals(scanned.getFields(), loaded.getFields());
+		assertEquals(List.of("java.util.ArrayList"), loaded.getDirectSubtypes().get("java.util.AbstractList"));
+		assertTrue(loaded.getMethods().get("add").contains("java.util.ArrayList"));
+		assertTrue(loaded.isCurrent());
+
+		jar(jar, "java.util.AbstractList", "java.util.ArrayList", "java.util.Vector");
+		Files.setLastModifiedTime(jar, FileTime.fromMillis(Files.getLastModifiedTime(jar).toMillis() + 2000));
+		var rescanned = new JarIndexCache(indexDir).get(jar);
+		assertEquals(List.of("java.util.AbstractList", "java.util.ArrayList", "java.util.Vector"),
+				rescanned.getClassNames());
+		assertEquals(List.of("java.util.ArrayList", "java.util.Vector"),
+				rescanned.getDirectSubtypes().get("java.util.AbstractList"));
+	}
+
+	/**
+	 * Packs the class files of JDK classes into a jar.
+	 */
+	private static Path jar(Path jarFile, String... classNames) throws IOException {
+		try (var out = new JarOutputStream(Files.newOutputStream(jarFile))) {
+			for (var className : classNames) {
+				var resourceName = className.replace('.', '/') + ".class";
+				out.putNextEntry(new JarEntry(resourceName));
+				try (var in = ClassLoader.getSystemResourceAsStream(resourceName)) {
+					in.transferTo(out);
+				}
+			}
+		}
+		return jarFile;
+	}
+
+}
@@ -0,0 +1,55 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.index;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class JdkIndexTest {
+
+	@Test
+	void indexesExportedPackagesOfThePlatformLoader() {
+		var index = JdkIndex.get();
+		assertTrue(index.getTopLevelClasses("java.util").contains("java.util.ArrayList"));
+		// java.sql is defined by the platform class loader
+		assertTrue(index.getTopLevelClasses("java.sql").contains("java.sql.Connection"));
+		// not exported
+		assertFalse(index.getPackages().containsKey("sun.nio.ch"));
+		// public top-level classes only
+		assertFalse(index.getTopLevelClasses("java.util").contains("java.util.Map.Entry"));
+		assertFalse(index.getTopLevelClasses("java.util").contains("java.util.ImmutableCollections"));
+	}
+
+	@Test
+	void skipsModulesInvisibleToTheContextClassLoader() {
+		var packages = JdkIndex.get().getPackages();
+		// application class loader
+		assertFalse(packages.containsKey("com.sun.source.tree"));
+		assertFalse(packages.containsKey("jdk.jshell"));
+		// incubator, not resolved by default
+		assertFalse(packages.containsKey("jdk.incubator.vector"));
+		var platform = ClassLoader.getPlatformClassLoader();
+		packages.forEach((packageName, classNames) -> {
+			var className = classNames.get(0);
+			assertNotNull(platform.getResource(className.replace('.', '/') + ".class"), className);
+		});
+	}
+
+	@Test
+	void indexesSubtypesAndMembers() {
+		var index = JdkIndex.get();
+		assertTrue(index.getDirectSubtypes("java.util.AbstractList").contains("java.util.ArrayList"));
+		// package-private, indexed as the link to StringBuilder
+		assertTrue(index.isNonPublic("java.lang.AbstractStringBuilder"));
+		assertTrue(index.getDirectSubtypes("java.lang.AbstractStringBuilder").contains("java.lang.StringBuilder"));
+		assertTrue(index.getMethods().get("ensureCapacity").contains("java.util.ArrayList"));
+		assertTrue(index.getFields().get("MIN_VALUE").contains("java.lang.Integer"));
+	}
+
+}
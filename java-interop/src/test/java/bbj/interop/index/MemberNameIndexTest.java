@@ -0,0 +1,63 @@
+/******************************************************************************
+ * Copyright 2023 TypeFox GmbH
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License, which is available in the project root.
+ ******************************************************************************/
+package bbj.interop.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import bbj.interop.data.MemberMatch;
+
+class MemberNameIndexTest {
+
+	private final MemberNameIndex index = MemberNameIndex.of(
+			List.of(Map.of("setText", List.of("a.Label", "a.Field"), "setTextColor", List.of("a.Label"),
+					"settings", List.of("b.Config"), "setTemplate", List.of("b.Page"), "getText", List.of("a.Label")),
+					Map.of("setText", List.of("c.Button"), "setTemplate", List.of("c.Page", "c.Report"))),
+			List.of(Map.of("SETTINGS", List.of("b.Config"))));
+
+	@Test
+	void caseKeepingMatchesFirst() {
+		// then by the number of declaring classes, then shorter names
+		assertEquals(List.of("setText", "setTemplate", "setTextColor", "SETTINGS", "settings"),
+				names(index.search("setT", 10)));
+		assertEquals(List.of("settings", "setText", "setTemplate", "SETTINGS", "setTextColor"),
+				names(index.search("sett", 10)));
+		assertEquals(List.of(), index.search("setX", 10));
+	}
+
+	@Test
+	void declaringClassesAreMerged() {
+		var setText = index.search("setText", 1).get(0);
+		assertEquals(true, setText.isMethod);
+		assertEquals(3, setText.classCount);
+		assertEquals(List.of("a.Field", "a.Label", "c.Button"), setText.declaringClasses);
+		var field = index.search("SETTINGS", 1).get(0);
+		assertEquals(false, field.isMethod);
+		assertEquals(List.of("b.Config"), field.declaringClasses);
+	}
+
+	@Test
+	void resultsAreBounded() {
+		assertEquals(List.of("setText", "setTemplate"), names(index.search("set", 2)));
+		assertEquals(List.of(), index.search("set", 0));
+		assertEquals(List.of(), index.search("", 10));
+
+		var classNames = IntStream.range(0, 30).mapToObj(i -> String.format("p.C%02d", i)).toList();
+		var match = MemberNameIndex.of(List.of(Map.of("run", classNames)), List.of()).search("r", 10).get(0);
+		assertEquals(30, match.classCount);
+		assertEquals(classNames.subList(0, 20), match.declaringClasses);
+	}
+
+	private static List<String> names(List<MemberMatch> matches) {
+		return matches.stream().map(match -> match.name).toList();
+	}
+
+}